@@ -35,6 +35,7 @@ import org.aoju.bus.cache.support.SpelCalculator;
 import org.aoju.bus.core.annotation.Inject;
 import org.aoju.bus.core.annotation.Named;
 import org.aoju.bus.core.annotation.Singleton;
+import org.aoju.bus.core.utils.StringUtils;
 import org.aoju.bus.logger.Logger;
 import org.aoju.bus.proxy.invoker.ProxyChain;
 
@@ -127,15 +128,16 @@ public class Complex {
                 Set<String> keys = ((Map<String, Object>) pair[1]).keySet();
                 cacheManager.remove(invalid.value(), keys.toArray(new String[keys.size()]));
 
-                Logger.info("multi cache clear, keys: {}", keys);
+                Logger.info(() -> StringUtils.format("multi cache clear, keys: {}", keys));
             } else {
                 String key = KeyGenerator.generateSingleKey(annoHolder, args);
                 cacheManager.remove(invalid.value(), key);
 
-                Logger.info("single cache clear, key: {}", key);
+                Logger.info(() -> StringUtils.format("single cache clear, key: {}", key));
             }
 
-            Logger.debug("cache clear total cost [{}] ms", (System.currentTimeMillis() - start));
+            long cost = System.currentTimeMillis() - start;
+            Logger.debug(() -> StringUtils.format("cache clear total cost [{}] ms", cost));
         }
     }
 
@@ -153,7 +155,8 @@ public class Complex {
             result = singleCacheReader.read(annoHolder, methodHolder, baseInvoker, needWrite);
         }
 
-        Logger.debug("cache read total cost [{}] ms", (System.currentTimeMillis() - start));
+        long cost = System.currentTimeMillis() - start;
+        Logger.debug(() -> StringUtils.format("cache read total cost [{}] ms", cost));
 
         return result;
     }
@@ -0,0 +1,65 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache;
+
+/**
+ * 缓存失效广播通道
+ * 用于在多个JVM之间传播remove/clear事件,使各节点的本地缓存保持一致
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public interface Invalidator {
+
+    /**
+     * 广播失效事件
+     *
+     * @param source 事件来源节点标识
+     * @param keys   失效的键,为空时表示清空缓存
+     */
+    void publish(String source, String... keys);
+
+    /**
+     * 订阅失效事件
+     *
+     * @param listener 监听器
+     */
+    void subscribe(Listener listener);
+
+    @FunctionalInterface
+    interface Listener {
+
+        /**
+         * 收到失效事件
+         *
+         * @param source 事件来源节点标识
+         * @param keys   失效的键,为空时表示清空缓存
+         */
+        void onInvalid(String source, String... keys);
+
+    }
+
+}
@@ -24,6 +24,7 @@
  ********************************************************************************/
 package org.aoju.bus.cache;
 
+import org.aoju.bus.cache.magic.CacheEntry;
 import org.aoju.bus.cache.magic.CacheKeys;
 import org.aoju.bus.cache.magic.CachePair;
 import org.aoju.bus.core.annotation.Inject;
@@ -63,9 +64,8 @@ public class Manage {
 
             long start = System.currentTimeMillis();
             Object result = cacheImpl.getRight().read(key);
-            Logger.info("cache [{}] read single cost: [{}] ms",
-                    cacheImpl.getLeft(),
-                    (System.currentTimeMillis() - start));
+            long cost = System.currentTimeMillis() - start;
+            Logger.info(() -> StringUtils.format("cache [{}] read single cost: [{}] ms", cacheImpl.getLeft(), cost));
 
             return result;
         } catch (Throwable e) {
@@ -81,9 +81,8 @@ public class Manage {
 
                 long start = System.currentTimeMillis();
                 cacheImpl.getRight().write(key, value, expire);
-                Logger.info("cache [{}] write single cost: [{}] ms",
-                        cacheImpl.getLeft(),
-                        (System.currentTimeMillis() - start));
+                long cost = System.currentTimeMillis() - start;
+                Logger.info(() -> StringUtils.format("cache [{}] write single cost: [{}] ms", cacheImpl.getLeft(), cost));
 
             } catch (Throwable e) {
                 Logger.error("write single cache failed, key: {} ", key, e);
@@ -101,15 +100,14 @@ public class Manage {
 
                 long start = System.currentTimeMillis();
                 Map<String, Object> cacheMap = cacheImpl.getRight().read(keys);
-                Logger.info("cache [{}] read batch cost: [{}] ms",
-                        cacheImpl.getLeft(),
-                        (System.currentTimeMillis() - start));
+                long cost = System.currentTimeMillis() - start;
+                Logger.info(() -> StringUtils.format("cache [{}] read batch cost: [{}] ms", cacheImpl.getLeft(), cost));
 
                 // collect not nit keys, keep order when full shooting
                 Map<String, Object> hitValueMap = new LinkedHashMap<>();
                 Set<String> notHitKeys = new LinkedHashSet<>();
                 for (String key : keys) {
-                    Object value = cacheMap.get(key);
+                    Object value = CacheEntry.unwrap(cacheMap.get(key));
 
                     if (value == null) {
                         notHitKeys.add(key);
@@ -134,9 +132,8 @@ public class Manage {
 
             long start = System.currentTimeMillis();
             cacheImpl.getRight().write(keyValueMap, expire);
-            Logger.info("cache [{}] write batch cost: [{}] ms",
-                    cacheImpl.getLeft(),
-                    (System.currentTimeMillis() - start));
+            long cost = System.currentTimeMillis() - start;
+            Logger.info(() -> StringUtils.format("cache [{}] write batch cost: [{}] ms", cacheImpl.getLeft(), cost));
 
         } catch (Exception e) {
             Logger.error("write map multi cache failed, keys: {}", keyValueMap.keySet(), e);
@@ -150,9 +147,8 @@ public class Manage {
 
                 long start = System.currentTimeMillis();
                 cacheImpl.getRight().remove(keys);
-                Logger.info("cache [{}] remove cost: [{}] ms",
-                        cacheImpl.getLeft(),
-                        (System.currentTimeMillis() - start));
+                long cost = System.currentTimeMillis() - start;
+                Logger.info(() -> StringUtils.format("cache [{}] remove cost: [{}] ms", cacheImpl.getLeft(), cost));
 
             } catch (Throwable e) {
                 Logger.error("remove cache failed, keys: {}: ", keys, e);
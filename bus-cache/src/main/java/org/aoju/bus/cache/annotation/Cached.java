@@ -62,4 +62,29 @@ public @interface Cached {
      */
     int expire() default CacheExpire.FOREVER;
 
+    /**
+     * @return when {@code true}, concurrent cache misses on the same key
+     * share one in-flight method invocation and all receive its result
+     */
+    boolean singleFlight() default false;
+
+    /**
+     * @return max time to wait for another caller's in-flight invocation, time unit: <b>milliseconds</b>,
+     * after which the waiting caller invokes the method itself, {@code 0} waits without limit
+     */
+    int flightTimeout() default 3000;
+
+    /**
+     * @return refresh-ahead window, time unit: <b>milliseconds</b>,
+     * when the entry's remaining lifetime falls within this window the cached value
+     * is returned immediately and reloaded asynchronously, {@code 0} disables it
+     */
+    int refresh() default 0;
+
+    /**
+     * @return when {@code true}, keep serving the last cached value
+     * if the asynchronous refresh throws
+     */
+    boolean stale() default false;
+
 }
@@ -56,4 +56,17 @@ public @interface CachedGet {
      */
     String condition() default "";
 
+    /**
+     * @return refresh-ahead window, time unit: <b>milliseconds</b>,
+     * when the entry's remaining lifetime falls within this window the cached value
+     * is returned immediately and reloaded asynchronously, {@code 0} disables it
+     */
+    int refresh() default 0;
+
+    /**
+     * @return when {@code true}, keep serving the last cached value
+     * if the asynchronous refresh throws
+     */
+    boolean stale() default false;
+
 }
@@ -24,9 +24,17 @@
  ********************************************************************************/
 package org.aoju.bus.cache.magic;
 
+import org.aoju.bus.core.utils.StringUtils;
 import org.aoju.bus.logger.Logger;
 import org.aoju.bus.proxy.invoker.ProxyChain;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * @author Kimi Liu
  * @version 5.8.1
@@ -34,6 +42,9 @@ import org.aoju.bus.proxy.invoker.ProxyChain;
  */
 public abstract class AbstractReader {
 
+    // 正在执行中的方法调用, key为缓存key
+    protected final ConcurrentMap<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
     public abstract Object read(AnnoHolder annoHolder, MethodHolder methodHolder, ProxyChain baseInvoker, boolean needWrite) throws Throwable;
 
     Object doLogInvoke(ThrowableSupplier<Object> throwableSupplier) throws Throwable {
@@ -41,7 +52,58 @@ public abstract class AbstractReader {
         try {
             return throwableSupplier.get();
         } finally {
-            Logger.debug("method invoke total cost [{}] ms", (System.currentTimeMillis() - start));
+            long cost = System.currentTimeMillis() - start;
+            Logger.debug(() -> StringUtils.format("method invoke total cost [{}] ms", cost));
+        }
+    }
+
+    /**
+     * 同一个key并发未命中时只执行一次方法调用, 其余调用者等待并共享该结果,
+     * 等待超时的调用者不再等待, 自行执行方法调用
+     *
+     * @param key               缓存key
+     * @param timeout           等待时间, 毫秒, 0表示不限
+     * @param throwableSupplier 方法调用
+     * @return 方法调用结果
+     * @throws Throwable 方法调用异常
+     */
+    Object doFlightInvoke(String key, long timeout, ThrowableSupplier<Object> throwableSupplier) throws Throwable {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            Logger.debug(() -> StringUtils.format("single flight joined, key: {}", key));
+            try {
+                return await(inFlight, timeout);
+            } catch (TimeoutException e) {
+                Logger.warn("single flight wait timeout [{}] ms, invoke directly, key: {}", timeout, key);
+                return throwableSupplier.get();
+            }
+        }
+
+        try {
+            Object result = throwableSupplier.get();
+            flight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * @param flight  其他调用的结果
+     * @param timeout 等待时间, 毫秒, 小于等于0表示不限
+     * @return 方法调用结果
+     * @throws TimeoutException 等待超时
+     * @throws Throwable        方法调用异常
+     */
+    static Object await(CompletableFuture<Object> flight, long timeout) throws Throwable {
+        try {
+            return timeout > 0 ? flight.get(timeout, TimeUnit.MILLISECONDS) : flight.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
         }
     }
 
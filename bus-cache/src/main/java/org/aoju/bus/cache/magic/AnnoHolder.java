@@ -42,6 +42,10 @@ public class AnnoHolder {
     private String cache;
     private String prefix;
     private int expire;
+    private boolean singleFlight;
+    private int flightTimeout;
+    private int refresh;
+    private boolean stale;
 
     // @CacheKey
     private Map<Integer, CacheKey> cacheKeyMap;
@@ -51,12 +55,16 @@ public class AnnoHolder {
     private String id;
 
     private AnnoHolder(Method method,
-                       String cache, String prefix, int expire,
+                       String cache, String prefix, int expire, boolean singleFlight, int flightTimeout, int refresh, boolean stale,
                        Map<Integer, CacheKey> cacheKeyMap, int multiIndex, String id) {
         this.method = method;
         this.cache = cache;
         this.prefix = prefix;
         this.expire = expire;
+        this.singleFlight = singleFlight;
+        this.flightTimeout = flightTimeout;
+        this.refresh = refresh;
+        this.stale = stale;
         this.cacheKeyMap = cacheKeyMap;
         this.multiIndex = multiIndex;
         this.id = id;
@@ -78,6 +86,26 @@ public class AnnoHolder {
         return expire;
     }
 
+    public boolean isSingleFlight() {
+        return singleFlight;
+    }
+
+    public int getFlightTimeout() {
+        return flightTimeout;
+    }
+
+    public int getRefresh() {
+        return refresh;
+    }
+
+    public boolean isRefresh() {
+        return refresh > 0;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
     public Map<Integer, CacheKey> getCacheKeyMap() {
         return cacheKeyMap;
     }
@@ -104,6 +132,14 @@ public class AnnoHolder {
 
         private int expire;
 
+        private boolean singleFlight;
+
+        private int flightTimeout;
+
+        private int refresh;
+
+        private boolean stale;
+
         private Map<Integer, CacheKey> cacheKeyMap;
 
         private int multiIndex = -1;
@@ -133,6 +169,26 @@ public class AnnoHolder {
             return this;
         }
 
+        public Builder setSingleFlight(boolean singleFlight) {
+            this.singleFlight = singleFlight;
+            return this;
+        }
+
+        public Builder setFlightTimeout(int flightTimeout) {
+            this.flightTimeout = flightTimeout;
+            return this;
+        }
+
+        public Builder setRefresh(int refresh) {
+            this.refresh = refresh;
+            return this;
+        }
+
+        public Builder setStale(boolean stale) {
+            this.stale = stale;
+            return this;
+        }
+
         public Builder setMultiIndex(int multiIndex) {
             this.multiIndex = multiIndex;
             return this;
@@ -149,7 +205,7 @@ public class AnnoHolder {
         }
 
         public AnnoHolder build() {
-            return new AnnoHolder(method, cache, prefix, expire, cacheKeyMap, multiIndex, id);
+            return new AnnoHolder(method, cache, prefix, expire, singleFlight, flightTimeout, refresh, stale, cacheKeyMap, multiIndex, id);
         }
     }
 
@@ -0,0 +1,118 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.magic;
+
+import java.io.Serializable;
+
+/**
+ * 带写入时间的缓存值,用于提前刷新(refresh-ahead)判断剩余有效期
+ * 需配合能够保留类型信息的序列化方式使用(如JDK、Hessian2)
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public class CacheEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Object value;
+
+    private long writeTime;
+
+    private long expire;
+
+    /**
+     * 刷新失败继续使用旧值时,在{@code writeTime + expire}之后延长的时长,单位毫秒
+     */
+    private long extended;
+
+    public CacheEntry(Object value, long expire) {
+        this.value = value;
+        this.expire = expire;
+        this.writeTime = System.currentTimeMillis();
+    }
+
+    private CacheEntry(Object value, long writeTime, long expire, long extended) {
+        this.value = value;
+        this.writeTime = writeTime;
+        this.expire = expire;
+        this.extended = extended;
+    }
+
+    /**
+     * 刷新失败时继续使用旧值: 保留原写入时间,只将失效时间延长到{@code now + retry},
+     * 下次读取即再次进入刷新窗口重试;旧值最多在原失效时间之后再保留一个{@code expire}
+     *
+     * @param retry 重试间隔,单位毫秒
+     * @return 延长后的缓存值,超出保留上限时返回null
+     */
+    public CacheEntry extend(long retry) {
+        long extended = Math.max(this.extended, System.currentTimeMillis() + retry - writeTime - expire);
+        if (extended > expire) {
+            return null;
+        }
+        return new CacheEntry(value, writeTime, expire, extended);
+    }
+
+    public static Object unwrap(Object value) {
+        return value instanceof CacheEntry ? ((CacheEntry) value).getValue() : value;
+    }
+
+    /**
+     * 是否进入失效前的刷新窗口
+     *
+     * @param window 刷新窗口,单位毫秒
+     * @return the true/false
+     */
+    public boolean isExpiring(long window) {
+        return expire > CacheExpire.FOREVER
+                && System.currentTimeMillis() >= getDeadline() - window;
+    }
+
+    /**
+     * @return 失效时间点,包括刷新失败时延长的时长
+     */
+    public long getDeadline() {
+        return writeTime + expire + extended;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public long getWriteTime() {
+        return writeTime;
+    }
+
+    public long getExpire() {
+        return expire;
+    }
+
+    public long getExtended() {
+        return extended;
+    }
+
+}
@@ -30,10 +30,13 @@ import org.aoju.bus.cache.Shooting;
 import org.aoju.bus.cache.support.*;
 import org.aoju.bus.core.annotation.Inject;
 import org.aoju.bus.core.annotation.Singleton;
+import org.aoju.bus.core.utils.StringUtils;
 import org.aoju.bus.logger.Logger;
 import org.aoju.bus.proxy.invoker.ProxyChain;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -145,6 +148,9 @@ public class MultiCacheReader extends AbstractReader {
     private Object handlePartHit(ProxyChain baseInvoker, CacheKeys cacheKeys,
                                  AnnoHolder annoHolder, MethodHolder methodHolder,
                                  Map[] pair, boolean needWrite) throws Throwable {
+        if (annoHolder.isSingleFlight()) {
+            return handleFlightPartHit(baseInvoker, cacheKeys, annoHolder, methodHolder, pair, needWrite);
+        }
 
         Map<Object, String> multiEntry2Key = pair[0];
         Map<String, Object> key2MultiEntry = pair[1];
@@ -192,6 +198,116 @@ public class MultiCacheReader extends AbstractReader {
         return result;
     }
 
+    /**
+     * 将按{@code keys}调用方法的返回值转换为key_value_map, 需要时写入Cache
+     */
+    private Map<String, Object> toKeyValue(Object proceed, Set<String> keys, AnnoHolder annoHolder, MethodHolder methodHolder,
+                                           Map<Object, String> multiEntry2Key, boolean needWrite) {
+        if (proceed == null) {
+            return Collections.emptyMap();
+        }
+        Set<String> missKeys = new LinkedHashSet<>(keys);
+        methodHolder.setReturnType(proceed.getClass());
+        Map<String, Object> keyValueMap;
+        if (Map.class.isAssignableFrom(proceed.getClass())) {
+            keyValueMap = KeyValueUtils.mapToKeyValue((Map) proceed, missKeys, multiEntry2Key, config.getPrevent());
+        } else {
+            keyValueMap = KeyValueUtils.collectionToKeyValue(asCollection(proceed, proceed.getClass()), annoHolder.getId(), missKeys, multiEntry2Key, config.getPrevent());
+        }
+        if (needWrite) {
+            cacheManager.writeBatch(annoHolder.getCache(), keyValueMap, annoHolder.getExpire());
+        }
+        return keyValueMap;
+    }
+
+    /**
+     * 按单个未命中key合并并发调用: 已有其他调用在加载的key直接等待其结果,
+     * 其余key由当前调用负责加载并将结果分发给等待者; 等待超时的key由当前调用直接加载
+     */
+    private Object handleFlightPartHit(ProxyChain baseInvoker, CacheKeys cacheKeys,
+                                       AnnoHolder annoHolder, MethodHolder methodHolder,
+                                       Map[] pair, boolean needWrite) throws Throwable {
+
+        Map<Object, String> multiEntry2Key = pair[0];
+        Map<String, Object> key2MultiEntry = pair[1];
+
+        Map<String, Object> hitKeyValueMap = new LinkedHashMap<>(cacheKeys.getHitKeyMap());
+        Map<String, CompletableFuture<Object>> leadFlights = new LinkedHashMap<>();
+        Map<String, CompletableFuture<Object>> joinFlights = new LinkedHashMap<>();
+        for (String key : cacheKeys.getMissKeySet()) {
+            CompletableFuture<Object> flight = new CompletableFuture<>();
+            CompletableFuture<Object> inFlight = flights.putIfAbsent(key, flight);
+            if (inFlight == null) {
+                leadFlights.put(key, flight);
+            } else {
+                joinFlights.put(key, inFlight);
+            }
+        }
+        Logger.debug(() -> StringUtils.format("multi single flight, lead keys: {}, joined keys: {}", leadFlights.keySet(), joinFlights.keySet()));
+
+        Object proceed = null;
+        try {
+            if (!leadFlights.isEmpty()) {
+                // 用由当前调用负责的keys调用方法
+                Object[] missArgs = toMissArgs(leadFlights.keySet(), key2MultiEntry, baseInvoker.getArguments(), annoHolder.getMultiIndex());
+                proceed = doLogInvoke(() -> baseInvoker.proceed(missArgs));
+                Map<String, Object> keyValueMap = toKeyValue(proceed, leadFlights.keySet(), annoHolder, methodHolder, multiEntry2Key, needWrite);
+                for (Map.Entry<String, CompletableFuture<Object>> entry : leadFlights.entrySet()) {
+                    entry.getValue().complete(keyValueMap.get(entry.getKey()));
+                }
+            }
+        } catch (Throwable e) {
+            leadFlights.values().forEach(flight -> flight.completeExceptionally(e));
+            throw e;
+        } finally {
+            leadFlights.forEach(flights::remove);
+        }
+
+        // 等待其他调用加载的keys, 所有key共用同一个等待期限
+        long timeout = annoHolder.getFlightTimeout();
+        long deadline = System.currentTimeMillis() + timeout;
+        Set<String> timeoutKeys = new LinkedHashSet<>();
+        for (Map.Entry<String, CompletableFuture<Object>> entry : joinFlights.entrySet()) {
+            Object value;
+            try {
+                value = await(entry.getValue(), timeout > 0 ? Math.max(1, deadline - System.currentTimeMillis()) : 0);
+            } catch (TimeoutException e) {
+                timeoutKeys.add(entry.getKey());
+                continue;
+            }
+            if (value != null) {
+                hitKeyValueMap.put(entry.getKey(), value);
+            }
+        }
+        if (!timeoutKeys.isEmpty()) {
+            Logger.warn("multi single flight wait timeout [{}] ms, invoke directly, keys: {}", timeout, timeoutKeys);
+            Object[] timeoutArgs = toMissArgs(timeoutKeys, key2MultiEntry, baseInvoker.getArguments(), annoHolder.getMultiIndex());
+            Object timeoutProceed = doLogInvoke(() -> baseInvoker.proceed(timeoutArgs));
+            Map<String, Object> keyValueMap = toKeyValue(timeoutProceed, timeoutKeys, annoHolder, methodHolder, multiEntry2Key, needWrite);
+            for (Map.Entry<String, Object> entry : keyValueMap.entrySet()) {
+                if (entry.getValue() != null) {
+                    hitKeyValueMap.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        Object result;
+        if (proceed != null) {
+            Class<?> returnType = proceed.getClass();
+            if (Map.class.isAssignableFrom(returnType)) {
+                result = mergeMap(returnType, (Map) proceed, key2MultiEntry, hitKeyValueMap);
+            } else {
+                Collection resultCollection = mergeCollection(returnType, asCollection(proceed, returnType), hitKeyValueMap);
+                result = asType(resultCollection, returnType);
+            }
+        } else {
+            // read as full shooting
+            result = handleFullHit(baseInvoker, hitKeyValueMap, methodHolder, key2MultiEntry);
+        }
+
+        return result;
+    }
+
     private Object asType(Collection collection, Class<?> returnType) {
         if (Collection.class.isAssignableFrom(returnType)) {
             return collection;
@@ -255,8 +371,8 @@ public class MultiCacheReader extends AbstractReader {
         // 计数
         int hitCount = cacheKeys.getHitKeyMap().size();
         int totalCount = hitCount + missKeys.size();
-        Logger.info("multi cache hit rate: {}/{}, missed keys: {}",
-                hitCount, totalCount, missKeys);
+        Logger.info(() -> StringUtils.format("multi cache hit rate: {}/{}, missed keys: {}",
+                hitCount, totalCount, missKeys));
 
         if (this.baseShooting != null) {
             // 分组模板
@@ -32,9 +32,17 @@ import org.aoju.bus.cache.support.PatternGenerator;
 import org.aoju.bus.cache.support.PreventObjects;
 import org.aoju.bus.core.annotation.Inject;
 import org.aoju.bus.core.annotation.Singleton;
+import org.aoju.bus.core.thread.ExecutorBuilder;
+import org.aoju.bus.core.thread.NamedThreadFactory;
+import org.aoju.bus.core.utils.StringUtils;
 import org.aoju.bus.logger.Logger;
 import org.aoju.bus.proxy.invoker.ProxyChain;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * @author Kimi Liu
  * @version 5.8.1
@@ -43,6 +51,20 @@ import org.aoju.bus.proxy.invoker.ProxyChain;
 @Singleton
 public class SingleCacheReader extends AbstractReader {
 
+    private static final int REFRESH_THREADS = 4;
+
+    private static final int REFRESH_QUEUE_SIZE = 1024;
+
+    // 正在异步刷新的key, 避免同一key重复提交刷新任务
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService refresher = ExecutorBuilder.create()
+            .setCorePoolSize(REFRESH_THREADS)
+            .setMaxPoolSize(REFRESH_THREADS)
+            .useArrayBlockingQueue(REFRESH_QUEUE_SIZE)
+            .setThreadFactory(new NamedThreadFactory("cache:refresher", true))
+            .build();
+
     @Inject
     private Manage cacheManager;
 
@@ -59,6 +81,13 @@ public class SingleCacheReader extends AbstractReader {
 
         doRecord(readResult, key, annoHolder);
         // 命中
+        if (readResult instanceof CacheEntry) {
+            CacheEntry entry = (CacheEntry) readResult;
+            if (annoHolder.isRefresh() && entry.isExpiring(annoHolder.getRefresh())) {
+                doRefresh(key, entry, annoHolder, baseInvoker);
+            }
+            readResult = entry.getValue();
+        }
         if (readResult != null) {
             // 是放击穿对象
             if (PreventObjects.isPrevent(readResult)) {
@@ -68,8 +97,15 @@ public class SingleCacheReader extends AbstractReader {
             return readResult;
         }
 
-
         // not hit
+        if (annoHolder.isSingleFlight()) {
+            return doFlightInvoke(key, annoHolder.getFlightTimeout(), () -> doInvokeWrite(key, annoHolder, methodHolder, baseInvoker, needWrite));
+        }
+        return doInvokeWrite(key, annoHolder, methodHolder, baseInvoker, needWrite);
+    }
+
+    private Object doInvokeWrite(String key, AnnoHolder annoHolder, MethodHolder methodHolder,
+                                 ProxyChain baseInvoker, boolean needWrite) throws Throwable {
         // invoke method
         Object invokeResult = doLogInvoke(baseInvoker::proceed);
         if (invokeResult != null && methodHolder.getInnerReturnType() == null) {
@@ -81,7 +117,7 @@ public class SingleCacheReader extends AbstractReader {
         }
 
         if (invokeResult != null) {
-            cacheManager.writeSingle(annoHolder.getCache(), key, invokeResult, annoHolder.getExpire());
+            cacheManager.writeSingle(annoHolder.getCache(), key, toCacheValue(annoHolder, invokeResult, annoHolder.getExpire()), annoHolder.getExpire());
             return invokeResult;
         }
 
@@ -93,8 +129,55 @@ public class SingleCacheReader extends AbstractReader {
         return null;
     }
 
+    /**
+     * 在失效前异步重新加载缓存, 开启stale时刷新失败将短暂继续使用旧值
+     */
+    private void doRefresh(String key, CacheEntry entry, AnnoHolder annoHolder, ProxyChain baseInvoker) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+
+        // @CachedGet 未声明失效时长, 沿用写入时的失效时长
+        int expire = annoHolder.getExpire() > CacheExpire.FOREVER ? annoHolder.getExpire() : (int) entry.getExpire();
+        try {
+            refresher.execute(() -> {
+                try {
+                    Object invokeResult = doLogInvoke(baseInvoker::proceed);
+                    if (invokeResult != null) {
+                        cacheManager.writeSingle(annoHolder.getCache(), key, toCacheValue(annoHolder, invokeResult, expire), expire);
+                    } else if (config.isPreventOn()) {
+                        cacheManager.writeSingle(annoHolder.getCache(), key, PreventObjects.getPreventObject(), expire);
+                    }
+                    Logger.debug("cache refresh success, key: {}", key);
+                } catch (Throwable e) {
+                    Logger.error("cache refresh failed, key: {}", key, e);
+                    if (annoHolder.isStale()) {
+                        // 不重置写入时间, 只延长一个刷新窗口, 下次读取即重试
+                        CacheEntry stale = entry.extend(annoHolder.getRefresh());
+                        if (stale != null) {
+                            long remaining = stale.getDeadline() - System.currentTimeMillis();
+                            cacheManager.writeSingle(annoHolder.getCache(), key, stale, (int) Math.max(1, remaining));
+                        }
+                    }
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            Logger.warn("cache refresh rejected, key: {}", key);
+        }
+    }
+
+    private static Object toCacheValue(AnnoHolder annoHolder, Object value, int expire) {
+        if (annoHolder.isRefresh() && expire > CacheExpire.FOREVER) {
+            return new CacheEntry(value, expire);
+        }
+        return value;
+    }
+
     private void doRecord(Object result, String key, AnnoHolder annoHolder) {
-        Logger.info("single cache hit rate: {}/1, key: {}", result == null ? 0 : 1, key);
+        Logger.info(() -> StringUtils.format("single cache hit rate: {}/1, key: {}", result == null ? 0 : 1, key));
         if (this.baseShooting != null) {
             String pattern = PatternGenerator.generatePattern(annoHolder);
 
@@ -0,0 +1,147 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.metric;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.aoju.bus.cache.CacheX;
+import org.aoju.bus.cache.magic.CacheExpire;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caffeine 缓存支持
+ * 基于W-TinyLFU淘汰策略,容量有界,并按写入时的expire为每个条目单独计算失效时间
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public class CaffeineCache implements CacheX {
+
+    private Cache<String, Entry> caffeineCache;
+
+    /**
+     * 默认失效时长,写入时expire为{@link CacheExpire#FOREVER}时使用,单位毫秒
+     */
+    private long expire;
+
+    public CaffeineCache(long size) {
+        this(size, CacheExpire.FOREVER);
+    }
+
+    public CaffeineCache(long size, long expire) {
+        this.expire = expire;
+        this.caffeineCache = Caffeine
+                .newBuilder()
+                .maximumSize(size)
+                .expireAfter(new EntryExpiry())
+                .build();
+    }
+
+    @Override
+    public Object read(String key) {
+        Entry entry = caffeineCache.getIfPresent(key);
+        return entry == null ? null : entry.value;
+    }
+
+    @Override
+    public Map<String, Object> read(Collection<String> keys) {
+        Map<String, Entry> entries = caffeineCache.getAllPresent(keys);
+        Map<String, Object> subCache = new HashMap<>(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            subCache.put(entry.getKey(), entry.getValue().value);
+        }
+        return subCache;
+    }
+
+    @Override
+    public void write(String key, Object value, long expire) {
+        caffeineCache.put(key, new Entry(value, toNanos(expire)));
+    }
+
+    @Override
+    public void write(Map<String, Object> keyValueMap, long expire) {
+        long nanos = toNanos(expire);
+        Map<String, Entry> entries = new HashMap<>(keyValueMap.size());
+        for (Map.Entry<String, Object> entry : keyValueMap.entrySet()) {
+            entries.put(entry.getKey(), new Entry(entry.getValue(), nanos));
+        }
+        caffeineCache.putAll(entries);
+    }
+
+    @Override
+    public void remove(String... keys) {
+        caffeineCache.invalidateAll(Arrays.asList(keys));
+    }
+
+    @Override
+    public void clear() {
+        caffeineCache.invalidateAll();
+    }
+
+    private long toNanos(long expire) {
+        long ttl = expire > CacheExpire.FOREVER ? expire : this.expire;
+        return ttl > CacheExpire.FOREVER ? TimeUnit.MILLISECONDS.toNanos(ttl) : Long.MAX_VALUE;
+    }
+
+    private static class Entry {
+
+        private final Object value;
+
+        private final long nanos;
+
+        private Entry(Object value, long nanos) {
+            this.value = value;
+            this.nanos = nanos;
+        }
+
+    }
+
+    private static class EntryExpiry implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return entry.nanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return entry.nanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+}
@@ -0,0 +1,240 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.metric;
+
+import org.aoju.bus.cache.CacheX;
+import org.aoju.bus.cache.Invalidator;
+import org.aoju.bus.cache.magic.CacheEntry;
+import org.aoju.bus.cache.magic.CacheExpire;
+import org.aoju.bus.core.key.ObjectID;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 二级缓存支持
+ * 本地缓存(L1)作为远程缓存(L2)的前置,读取时L2命中的数据提升至L1,
+ * 写入同时写L1与L2,write/remove/clear通过{@link Invalidator}通知其他节点清除L1
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public class NearCache implements CacheX {
+
+    private final String id = ObjectID.id();
+
+    private final LongAdder localHits = new LongAdder();
+
+    private final LongAdder remoteHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private CacheX local;
+
+    private CacheX remote;
+
+    private Invalidator invalidator;
+
+    /**
+     * 本地缓存失效时长上限,单位毫秒,用于限制未收到失效通知时的脏读时间
+     */
+    private long localExpire;
+
+    public NearCache(CacheX local, CacheX remote, Invalidator invalidator) {
+        this(local, remote, invalidator, CacheExpire.ONE_MIN);
+    }
+
+    public NearCache(CacheX local, CacheX remote, Invalidator invalidator, long localExpire) {
+        this.local = local;
+        this.remote = remote;
+        this.invalidator = invalidator;
+        this.localExpire = localExpire;
+        if (invalidator != null) {
+            invalidator.subscribe(this::onInvalid);
+        }
+    }
+
+    @Override
+    public Object read(String key) {
+        Object value = local.read(key);
+        if (value != null) {
+            localHits.increment();
+            return value;
+        }
+
+        value = remote.read(key);
+        if (value != null) {
+            remoteHits.increment();
+            long expire = promoteExpire(value);
+            if (expire != CacheExpire.NO) {
+                local.write(key, value, expire);
+            }
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    @Override
+    public Map<String, Object> read(Collection<String> keys) {
+        Map<String, Object> result = new HashMap<>(keys.size());
+        Set<String> missKeys = new LinkedHashSet<>();
+        Map<String, Object> localMap = local.read(keys);
+        for (String key : keys) {
+            Object value = localMap.get(key);
+            if (value == null) {
+                missKeys.add(key);
+            } else {
+                result.put(key, value);
+            }
+        }
+        localHits.add(result.size());
+        if (missKeys.isEmpty()) {
+            return result;
+        }
+
+        Map<String, Object> promoted = new HashMap<>(missKeys.size());
+        Map<String, Object> remoteMap = remote.read(missKeys);
+        int found = 0;
+        for (String key : missKeys) {
+            Object value = remoteMap.get(key);
+            if (value == null) {
+                continue;
+            }
+            found++;
+            result.put(key, value);
+            if (value instanceof CacheEntry) {
+                // 剩余有效期各不相同,逐个写入
+                long expire = promoteExpire(value);
+                if (expire != CacheExpire.NO) {
+                    local.write(key, value, expire);
+                }
+            } else {
+                promoted.put(key, value);
+            }
+        }
+        remoteHits.add(found);
+        misses.add(missKeys.size() - found);
+
+        if (!promoted.isEmpty()) {
+            local.write(promoted, localExpire);
+        }
+        return result;
+    }
+
+    @Override
+    public void write(String key, Object value, long expire) {
+        remote.write(key, value, expire);
+        local.write(key, value, toLocalExpire(expire));
+        if (invalidator != null) {
+            invalidator.publish(id, key);
+        }
+    }
+
+    @Override
+    public void write(Map<String, Object> keyValueMap, long expire) {
+        remote.write(keyValueMap, expire);
+        local.write(keyValueMap, toLocalExpire(expire));
+        if (invalidator != null && !keyValueMap.isEmpty()) {
+            invalidator.publish(id, keyValueMap.keySet().toArray(new String[0]));
+        }
+    }
+
+    @Override
+    public void remove(String... keys) {
+        // 先删除L2, 否则并发读取可能在两次删除之间把L2中的旧值重新提升到L1
+        remote.remove(keys);
+        local.remove(keys);
+        if (invalidator != null && keys.length != 0) {
+            invalidator.publish(id, keys);
+        }
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.clear();
+        if (invalidator != null) {
+            invalidator.publish(id);
+        }
+    }
+
+    public long getLocalHits() {
+        return localHits.sum();
+    }
+
+    public long getRemoteHits() {
+        return remoteHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void onInvalid(String source, String... keys) {
+        if (id.equals(source)) {
+            return;
+        }
+        if (keys == null || keys.length == 0) {
+            local.clear();
+        } else {
+            local.remove(keys);
+        }
+    }
+
+    /**
+     * L2数据提升至L1时的失效时长,不超过L2条目的剩余有效期
+     * 仅能从{@link CacheEntry}得知剩余有效期,其他值使用localExpire
+     *
+     * @param value L2中读取到的值
+     * @return 失效时长,已过期时返回{@link CacheExpire#NO}
+     */
+    private long promoteExpire(Object value) {
+        if (!(value instanceof CacheEntry)) {
+            return localExpire;
+        }
+        CacheEntry entry = (CacheEntry) value;
+        if (entry.getExpire() <= CacheExpire.FOREVER) {
+            return localExpire;
+        }
+        long remaining = entry.getDeadline() - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return CacheExpire.NO;
+        }
+        return toLocalExpire(remaining);
+    }
+
+    private long toLocalExpire(long expire) {
+        if (localExpire <= CacheExpire.FOREVER) {
+            return expire;
+        }
+        if (expire <= CacheExpire.FOREVER) {
+            return localExpire;
+        }
+        return Math.min(expire, localExpire);
+    }
+
+}
@@ -25,59 +25,71 @@
 package org.aoju.bus.cache.provider;
 
 import org.aoju.bus.cache.Shooting;
-import org.aoju.bus.cache.magic.CachePair;
 import org.aoju.bus.core.lang.Normal;
+import org.aoju.bus.logger.Logger;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.yaml.snakeyaml.Yaml;
 
 import javax.annotation.PreDestroy;
 import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
+ * 命中率统计: 请求线程只累加内存中按pattern分段的计数器,
+ * 由后台线程按固定间隔将增量批量写入数据库, 查询直接读取内存
+ *
  * @author Kimi Liu
  * @version 5.8.1
  * @since JDK 1.8+
  */
 public abstract class AbstractShooting implements Shooting {
 
-    private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+    /**
+     * 默认刷新间隔, 单位毫秒, 可通过构造参数中的 interval 配置
+     */
+    private static final long DEFAULT_INTERVAL = 1000L;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread thread = new Thread(r);
         thread.setName("cache:db-writer");
         thread.setDaemon(true);
         return thread;
     });
 
-    private static final Lock lock = new ReentrantLock();
-
-    private volatile boolean isShutdown = false;
-
-    private BlockingQueue<CachePair<String, Integer>> hitQueue = new LinkedTransferQueue<>();
-
-    private BlockingQueue<CachePair<String, Integer>> requireQueue = new LinkedTransferQueue<>();
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
 
     private JdbcOperations jdbcOperations;
 
     private Properties sqls;
 
+    /**
+     * 驱动的批量执行不返回影响行数(SUCCESS_NO_INFO)时置为true, 此后逐条执行update
+     */
+    private volatile boolean batchCountUnknown;
+
     protected AbstractShooting(Map<String, Object> context) {
         InputStream resource = this.getClass().getClassLoader().getResourceAsStream(Normal.META_DATA_INF + "/caches/bus-cache.yaml");
         this.sqls = new Yaml().loadAs(resource, Properties.class);
 
         this.jdbcOperations = jdbcOperationsSupplier(context).get();
-        executor.submit(() -> {
-            while (!isShutdown) {
-                dumpToDB(hitQueue, "hit_count");
-                dumpToDB(requireQueue, "require_count");
-            }
-        });
+
+        // load persisted counts as the in-memory base
+        queryAll().forEach(dataDO -> counters.put(dataDO.pattern, new Counter(dataDO.hitCount, dataDO.requireCount)));
+
+        long interval = Optional.ofNullable(context.get("interval"))
+                .map(value -> Long.parseLong(value.toString()))
+                .orElse(DEFAULT_INTERVAL);
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
     }
 
     public AbstractShooting(String url, String username, String password) {
@@ -117,99 +129,200 @@ public abstract class AbstractShooting implements Shooting {
      */
     protected abstract Stream<DataDO> transferResults(List<Map<String, Object>> map);
 
-    private void dumpToDB(BlockingQueue<CachePair<String, Integer>> queue, String column) {
-        long times = 0;
-        CachePair<String, Integer> head;
-
-        // gather queue's all or before 100 data to a Map
-        Map<String, AtomicLong> holdMap = new HashMap<>();
-        while ((head = queue.poll()) != null && times <= 100) {
-            holdMap
-                    .computeIfAbsent(head.getLeft(), (key) -> new AtomicLong(0L))
-                    .addAndGet(head.getRight());
-            ++times;
-        }
-
-        // batch write to DB
-        holdMap.forEach((pattern, count) -> countAddCas(column, pattern, count.get()));
+    /**
+     * 数据库原生的累加upsert语句, 参数依次为 pattern, hit_count, require_count
+     * 返回null时使用通用的 批量update + 批量insert 方式
+     *
+     * @return upsert sql
+     */
+    protected String upsertSql() {
+        return null;
     }
 
     @Override
     public void hitIncr(String pattern, int count) {
         if (count != 0)
-            hitQueue.add(CachePair.of(pattern, count));
+            getCounter(pattern).hit.add(count);
     }
 
     @Override
     public void reqIncr(String pattern, int count) {
         if (count != 0)
-            requireQueue.add(CachePair.of(pattern, count));
+            getCounter(pattern).require.add(count);
     }
 
     @Override
     public Map<String, ShootingDO> getShooting() {
-        List<DataDO> dataDOS = queryAll();
-        AtomicLong statisticsHit = new AtomicLong(0);
-        AtomicLong statisticsRequired = new AtomicLong(0);
-
-        // gather pattern's hit rate
-        Map<String, ShootingDO> result = dataDOS.stream().collect(Collectors.toMap(
-                DataDO::getPattern,
-                (dataDO) -> {
-                    statisticsHit.addAndGet(dataDO.hitCount);
-                    statisticsRequired.addAndGet(dataDO.requireCount);
-                    return ShootingDO.newInstance(dataDO.hitCount, dataDO.requireCount);
-                },
-                ShootingDO::mergeShootingDO,
-                LinkedHashMap::new
-        ));
+        Map<String, ShootingDO> result = new LinkedHashMap<>();
+
+        long statisticsHit = 0;
+        long statisticsRequired = 0;
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long hit = counter.baseHit + counter.hit.sum();
+            long require = counter.baseRequire + counter.require.sum();
+
+            statisticsHit += hit;
+            statisticsRequired += require;
+
+            result.put(entry.getKey(), ShootingDO.newInstance(hit, require));
+        }
 
         // gather application all pattern's hit rate
-        result.put(summaryName(), ShootingDO.newInstance(statisticsHit.get(), statisticsRequired.get()));
+        result.put(summaryName(), ShootingDO.newInstance(statisticsHit, statisticsRequired));
 
         return result;
     }
 
     @Override
     public void reset(String pattern) {
+        counters.remove(pattern);
         jdbcOperations.update(sqls.getProperty("delete"), pattern);
     }
 
     @Override
     public void resetAll() {
+        counters.clear();
         jdbcOperations.update(sqls.getProperty("truncate"));
     }
 
-    private void countAddCas(String column, String pattern, long count) {
-        Optional<DataDO> dataOptional = queryObject(pattern);
+    private Counter getCounter(String pattern) {
+        Counter counter = counters.get(pattern);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(pattern, (key) -> new Counter(0L, 0L));
+        }
+        return counter;
+    }
 
-        // if has pattern record, update it.
-        if (dataOptional.isPresent()) {
-            DataDO dataDO = dataOptional.get();
-            while (update(column, pattern, getObjectCount(dataDO, column, count), dataDO.version) <= 0) {
-                dataDO = queryObject(pattern).get();
+    /**
+     * 将自上次刷新以来的增量在一次批量操作中写入数据库
+     */
+    private void flush() {
+        Map<String, long[]> deltas = new LinkedHashMap<>();
+        Map<String, Counter> flushing = new HashMap<>();
+        counters.forEach((pattern, counter) -> {
+            long hit = counter.hit.sum() - counter.flushedHit;
+            long require = counter.require.sum() - counter.flushedRequire;
+            if (hit != 0 || require != 0) {
+                deltas.put(pattern, new long[]{hit, require});
+                flushing.put(pattern, counter);
             }
-        } else {
-            lock.lock();
-            try {
-                // double check
-                dataOptional = queryObject(pattern);
-                if (dataOptional.isPresent()) {
-                    update(column, pattern, count, dataOptional.get().version);
-                } else {
-                    insert(column, pattern, count);
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            String upsertSql = upsertSql();
+            if (upsertSql != null) {
+                inTransaction(connection -> {
+                    executeBatch(connection, upsertSql, deltas, true);
+                    return null;
+                });
+            } else {
+                updateOrInsert(deltas);
+            }
+
+            flushing.forEach((pattern, counter) -> {
+                long[] delta = deltas.get(pattern);
+                counter.flushedHit += delta[0];
+                counter.flushedRequire += delta[1];
+            });
+        } catch (Throwable e) {
+            // keep the deltas, they will be retried on the next flush
+            Logger.error("flush cache shooting to db failed, patterns: {}", deltas.keySet(), e);
+        }
+    }
+
+    /**
+     * update 与 insert 在同一事务中执行, 任一失败整体回滚,
+     * 增量保留到下次刷新时重试, 不会重复累加已提交的部分
+     */
+    private void updateOrInsert(Map<String, long[]> deltas) {
+        inTransaction(connection -> {
+            int[] updated = update(connection, deltas);
+
+            Map<String, long[]> inserts = new LinkedHashMap<>();
+            int index = 0;
+            for (Map.Entry<String, long[]> entry : deltas.entrySet()) {
+                int count = updated[index++];
+                if (count == 0) {
+                    inserts.put(entry.getKey(), entry.getValue());
+                } else if (count < 0) {
+                    throw new SQLException("update cache shooting failed, pattern: " + entry.getKey());
                 }
-            } finally {
-                lock.unlock();
             }
+            if (!inserts.isEmpty()) {
+                executeBatch(connection, sqls.getProperty("insert"), inserts, true);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 执行update并返回每个pattern的影响行数
+     * 驱动批量执行返回 {@link Statement#SUCCESS_NO_INFO} 时无法区分记录是否存在,
+     * 回滚后改为逐条执行
+     */
+    private int[] update(Connection connection, Map<String, long[]> deltas) throws SQLException {
+        String updateSql = sqls.getProperty("update");
+        if (!batchCountUnknown) {
+            int[] updated = executeBatch(connection, updateSql, deltas, false);
+            if (Arrays.stream(updated).noneMatch(count -> count == Statement.SUCCESS_NO_INFO)) {
+                return updated;
+            }
+            connection.rollback();
+            batchCountUnknown = true;
         }
+
+        int[] updated = new int[deltas.size()];
+        int index = 0;
+        try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+            for (Map.Entry<String, long[]> entry : deltas.entrySet()) {
+                bind(statement, entry.getKey(), entry.getValue(), false);
+                updated[index++] = statement.executeUpdate();
+            }
+        }
+        return updated;
     }
 
-    private Optional<DataDO> queryObject(String pattern) {
-        String selectSql = sqls.getProperty("select");
-        List<Map<String, Object>> mapResults = jdbcOperations.queryForList(selectSql, pattern);
+    private int[] executeBatch(Connection connection, String sql, Map<String, long[]> deltas, boolean patternFirst) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Map.Entry<String, long[]> entry : deltas.entrySet()) {
+                bind(statement, entry.getKey(), entry.getValue(), patternFirst);
+                statement.addBatch();
+            }
+            return statement.executeBatch();
+        }
+    }
+
+    private void bind(PreparedStatement statement, String pattern, long[] delta, boolean patternFirst) throws SQLException {
+        if (patternFirst) {
+            statement.setString(1, pattern);
+            statement.setLong(2, delta[0]);
+            statement.setLong(3, delta[1]);
+        } else {
+            statement.setLong(1, delta[0]);
+            statement.setLong(2, delta[1]);
+            statement.setString(3, pattern);
+        }
+    }
 
-        return transferResults(mapResults).findFirst();
+    private void inTransaction(ConnectionCallback<Void> action) {
+        jdbcOperations.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                action.doInConnection(connection);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
     }
 
     private List<DataDO> queryAll() {
@@ -219,34 +332,40 @@ public abstract class AbstractShooting implements Shooting {
         return transferResults(mapResults).collect(Collectors.toList());
     }
 
-    private int insert(String column, String pattern, long count) {
-        String insertSql = String.format(sqls.getProperty("insert"), column);
-
-        return jdbcOperations.update(insertSql, pattern, count);
+    @PreDestroy
+    public void tearDown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
     }
 
-    private int update(String column, String pattern, long count, long version) {
-        String updateSql = String.format(sqls.getProperty("update"), column);
+    /**
+     * 单个pattern的计数器, hit/require 为本进程累计值,
+     * flushed* 仅由刷新线程读写, 记录已写入数据库的部分
+     */
+    private static final class Counter {
 
-        return jdbcOperations.update(updateSql, count, pattern, version);
-    }
+        private final LongAdder hit = new LongAdder();
 
-    private long getObjectCount(DataDO data, String column, long countOffset) {
-        long lastCount = column.equals("hit_count") ? data.hitCount : data.requireCount;
+        private final LongAdder require = new LongAdder();
 
-        return lastCount + countOffset;
-    }
+        private final long baseHit;
 
-    @PreDestroy
-    public void tearDown() {
-        while (hitQueue.size() > 0 || requireQueue.size() > 0) {
-            try {
-                TimeUnit.SECONDS.sleep(1);
-            } catch (InterruptedException ignored) {
-            }
+        private final long baseRequire;
+
+        private long flushedHit;
+
+        private long flushedRequire;
+
+        private Counter(long baseHit, long baseRequire) {
+            this.baseHit = baseHit;
+            this.baseRequire = baseRequire;
         }
 
-        isShutdown = true;
     }
 
     protected static final class DataDO {
@@ -71,6 +71,15 @@ public class MySQLShooting extends AbstractShooting {
         };
     }
 
+    @Override
+    protected String upsertSql() {
+        return "INSERT INTO hi_cache_rate (pattern, hit_count, require_count, version) VALUES (?, ?, ?, 0) " +
+                "ON DUPLICATE KEY UPDATE " +
+                "hit_count = hit_count + VALUES(hit_count), " +
+                "require_count = require_count + VALUES(require_count), " +
+                "version = version + 1";
+    }
+
     @Override
     protected Stream<DataDO> transferResults(List<Map<String, Object>> mapResults) {
         return mapResults.stream().map(result -> {
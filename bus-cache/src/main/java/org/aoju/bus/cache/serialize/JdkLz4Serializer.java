@@ -0,0 +1,189 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.serialize;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+/**
+ * JDK序列化 + LZ4压缩
+ * 复用线程内的输出缓冲区, 仅当序列化结果超过阈值时才压缩, 数据格式:
+ * <pre>
+ *     | MAGIC(2) | CODEC(1) | [原始长度(4), 仅压缩时] | 数据 |
+ * </pre>
+ * 不带MAGIC头的数据交由legacy序列化器处理, 以便新旧格式在灰度期间共存
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public class JdkLz4Serializer extends AbstractSerializer {
+
+    private static final byte MAGIC_0 = (byte) 0xBC;
+
+    private static final byte MAGIC_1 = (byte) 0x01;
+
+    private static final byte CODEC_NONE = 0;
+
+    private static final byte CODEC_LZ4 = 1;
+
+    private static final int HEADER_SIZE = 3;
+
+    private static final int LENGTH_SIZE = 4;
+
+    /**
+     * 默认压缩阈值, 单位字节
+     */
+    private static final int DEFAULT_THRESHOLD = 1024;
+
+    /**
+     * 线程缓冲区超过该大小时不再保留, 避免偶发的大对象长期占用内存
+     */
+    private static final int MAX_POOLED_SIZE = 256 * 1024;
+
+    private static final ThreadLocal<Buffer> BUFFERS = ThreadLocal.withInitial(Buffer::new);
+
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private final int threshold;
+
+    private final BaseSerializer legacy;
+
+    public JdkLz4Serializer() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public JdkLz4Serializer(int threshold) {
+        this(threshold, new JdkSerializer());
+    }
+
+    public JdkLz4Serializer(int threshold, BaseSerializer legacy) {
+        this.threshold = threshold;
+        this.legacy = legacy;
+    }
+
+    @Override
+    protected byte[] doSerialize(Object obj) throws Throwable {
+        Buffer buffer = BUFFERS.get();
+        try {
+            buffer.reset();
+            try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+                out.writeObject(obj);
+            }
+
+            byte[] src = buffer.array();
+            int length = buffer.size();
+            if (length > threshold) {
+                int maxLength = compressor.maxCompressedLength(length);
+                byte[] dest = new byte[HEADER_SIZE + LENGTH_SIZE + maxLength];
+                int compressed = compressor.compress(src, 0, length, dest, HEADER_SIZE + LENGTH_SIZE, maxLength);
+                if (compressed < length) {
+                    writeHeader(dest, CODEC_LZ4);
+                    writeInt(dest, HEADER_SIZE, length);
+                    return Arrays.copyOf(dest, HEADER_SIZE + LENGTH_SIZE + compressed);
+                }
+            }
+
+            byte[] dest = new byte[HEADER_SIZE + length];
+            writeHeader(dest, CODEC_NONE);
+            System.arraycopy(src, 0, dest, HEADER_SIZE, length);
+            return dest;
+        } finally {
+            if (buffer.array().length > MAX_POOLED_SIZE) {
+                BUFFERS.remove();
+            }
+        }
+    }
+
+    @Override
+    protected Object doDeserialize(byte[] bytes) throws Throwable {
+        if (bytes.length < HEADER_SIZE || bytes[0] != MAGIC_0 || bytes[1] != MAGIC_1) {
+            return legacy.deserialize(bytes);
+        }
+
+        byte[] data;
+        int offset;
+        int length;
+        if (bytes[2] == CODEC_LZ4) {
+            length = readInt(bytes, HEADER_SIZE);
+            data = new byte[length];
+            decompressor.decompress(bytes, HEADER_SIZE + LENGTH_SIZE, data, 0, length);
+            offset = 0;
+        } else {
+            data = bytes;
+            offset = HEADER_SIZE;
+            length = bytes.length - HEADER_SIZE;
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data, offset, length))) {
+            return in.readObject();
+        }
+    }
+
+    private static void writeHeader(byte[] dest, byte codec) {
+        dest[0] = MAGIC_0;
+        dest[1] = MAGIC_1;
+        dest[2] = codec;
+    }
+
+    private static void writeInt(byte[] dest, int offset, int value) {
+        dest[offset] = (byte) (value >>> 24);
+        dest[offset + 1] = (byte) (value >>> 16);
+        dest[offset + 2] = (byte) (value >>> 8);
+        dest[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] src, int offset) {
+        return ((src[offset] & 0xFF) << 24)
+                | ((src[offset + 1] & 0xFF) << 16)
+                | ((src[offset + 2] & 0xFF) << 8)
+                | (src[offset + 3] & 0xFF);
+    }
+
+    /**
+     * 可直接访问内部数组的输出缓冲区, 避免toByteArray的额外拷贝
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private Buffer() {
+            super(4096);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+
+    }
+
+}
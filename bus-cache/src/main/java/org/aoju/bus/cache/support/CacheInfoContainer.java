@@ -113,14 +113,20 @@ public class CacheInfoContainer {
         return builder
                 .setCache(cached.value())
                 .setPrefix(cached.prefix())
-                .setExpire(cached.expire());
+                .setExpire(cached.expire())
+                .setSingleFlight(cached.singleFlight())
+                .setFlightTimeout(cached.flightTimeout())
+                .setRefresh(cached.refresh())
+                .setStale(cached.stale());
     }
 
     private static AnnoHolder.Builder scanCachedGet(AnnoHolder.Builder builder, CachedGet cachedGet) {
         return builder
                 .setCache(cachedGet.value())
                 .setPrefix(cachedGet.prefix())
-                .setExpire(CacheExpire.NO);
+                .setExpire(CacheExpire.NO)
+                .setRefresh(cachedGet.refresh())
+                .setStale(cachedGet.stale());
     }
 
     private static AnnoHolder.Builder scanInvalid(AnnoHolder.Builder builder, Invalid invalid) {
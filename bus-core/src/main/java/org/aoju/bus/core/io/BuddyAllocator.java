@@ -0,0 +1,172 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.core.io;
+
+import java.util.Arrays;
+
+/**
+ * 内存页的伙伴分配器
+ * 以2的幂为粒度划分内存页,每个阶维护一个空闲块双向链表,
+ * 分配时拆分更大的块,释放时与伙伴块合并,申请与释放的开销只与阶数相关
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+final class BuddyAllocator {
+
+    /**
+     * 最小块为64字节
+     */
+    static final int MIN_ORDER = 6;
+
+    private final int maxOrder;
+    /**
+     * 每个阶的空闲链表头,存放块序号
+     */
+    private final int[] heads;
+    /**
+     * 按最小块序号索引的链表指针
+     */
+    private final int[] next;
+    private final int[] prev;
+    /**
+     * 空闲块所在的阶,非空闲块为-1
+     */
+    private final byte[] free;
+
+    /**
+     * @param size 内存页大小
+     */
+    BuddyAllocator(int size) {
+        int blocks = size >>> MIN_ORDER;
+        this.maxOrder = blocks == 0 ? MIN_ORDER - 1 : 31 - Integer.numberOfLeadingZeros(blocks) + MIN_ORDER;
+        this.heads = new int[Math.max(0, maxOrder - MIN_ORDER + 1)];
+        this.next = new int[blocks];
+        this.prev = new int[blocks];
+        this.free = new byte[blocks];
+        Arrays.fill(heads, -1);
+        Arrays.fill(free, (byte) -1);
+
+        // 将内存页分解为若干对齐的2的幂块
+        int offset = 0;
+        for (int order = maxOrder; order >= MIN_ORDER; order--) {
+            if (blocks - (offset >>> MIN_ORDER) >= 1 << (order - MIN_ORDER)) {
+                push(offset >>> MIN_ORDER, order);
+                offset += 1 << order;
+            }
+        }
+    }
+
+    /**
+     * 计算容纳size字节所需的阶
+     *
+     * @param size 字节数
+     * @return 阶
+     */
+    static int order(int size) {
+        if (size <= 1 << MIN_ORDER) {
+            return MIN_ORDER;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    int maxOrder() {
+        return maxOrder;
+    }
+
+    /**
+     * 申请指定阶的块
+     *
+     * @param order 阶
+     * @return 块在内存页中的偏移量, 空间不足时返回-1
+     */
+    synchronized int allocate(int order) {
+        if (order > maxOrder) {
+            return -1;
+        }
+        int current = order;
+        while (current <= maxOrder && heads[current - MIN_ORDER] < 0) {
+            current++;
+        }
+        if (current > maxOrder) {
+            return -1;
+        }
+        int block = heads[current - MIN_ORDER];
+        remove(block, current);
+        // 逐级拆分,将右半部分放回空闲链表
+        while (current > order) {
+            current--;
+            push(block + (1 << (current - MIN_ORDER)), current);
+        }
+        return block << MIN_ORDER;
+    }
+
+    /**
+     * 释放块并尽可能与伙伴块合并
+     *
+     * @param offset 块在内存页中的偏移量
+     * @param order  阶
+     */
+    synchronized void free(int offset, int order) {
+        int block = offset >>> MIN_ORDER;
+        while (order < maxOrder) {
+            int buddy = block ^ (1 << (order - MIN_ORDER));
+            if (buddy >= free.length || free[buddy] != order) {
+                break;
+            }
+            remove(buddy, order);
+            block = Math.min(block, buddy);
+            order++;
+        }
+        push(block, order);
+    }
+
+    private void push(int block, int order) {
+        int head = heads[order - MIN_ORDER];
+        next[block] = head;
+        prev[block] = -1;
+        if (head >= 0) {
+            prev[head] = block;
+        }
+        heads[order - MIN_ORDER] = block;
+        free[block] = (byte) order;
+    }
+
+    private void remove(int block, int order) {
+        int p = prev[block];
+        int n = next[block];
+        if (p >= 0) {
+            next[p] = n;
+        } else {
+            heads[order - MIN_ORDER] = n;
+        }
+        if (n >= 0) {
+            prev[n] = p;
+        }
+        free[block] = -1;
+    }
+
+}
@@ -24,12 +24,17 @@
  ********************************************************************************/
 package org.aoju.bus.core.io;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import org.aoju.bus.core.thread.HashedWheelTimer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * ByteBuffer内存池
+ * 分配方式默认由系统属性{@value #ALLOCATOR}决定,可选值为linked(默认)与buddy
  *
  * @author Kimi Liu
  * @version 5.8.1
@@ -37,7 +42,8 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class BufferPool {
 
-    private static Timer timer = new Timer("BufferPoolClean", true);
+    public static final String ALLOCATOR = "bus-core.bufferPool.allocator";
+
     private PageBuffer[] pageBufferList;
     /**
      * 内存页游标
@@ -50,18 +56,26 @@ public class BufferPool {
      * @param isDirect 是否使用直接缓冲区
      */
     public BufferPool(final int pageSize, final int poolSize, final boolean isDirect) {
+        this(pageSize, poolSize, isDirect, Allocator.of(System.getProperty(ALLOCATOR)));
+    }
+
+    /**
+     * @param pageSize  内存页大小
+     * @param poolSize  内存页个数
+     * @param isDirect  是否使用直接缓冲区
+     * @param allocator 分配方式
+     */
+    public BufferPool(final int pageSize, final int poolSize, final boolean isDirect, final Allocator allocator) {
         pageBufferList = new PageBuffer[poolSize];
         for (int i = 0; i < poolSize; i++) {
-            pageBufferList[i] = new PageBuffer(pageSize, isDirect);
+            pageBufferList[i] = new PageBuffer(pageSize, isDirect, allocator);
         }
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                for (PageBuffer pageBuffer : pageBufferList) {
-                    pageBuffer.tryClean();
-                }
+        // 链表分配定时合并待回收块,伙伴分配在释放时即时合并,定时任务只回收已结束线程的缓存
+        Cleaner.TIMER.scheduleAtFixedRate(() -> {
+            for (PageBuffer pageBuffer : pageBufferList) {
+                pageBuffer.tryClean();
             }
-        }, 500, 1000);
+        }, 500, 1000, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -71,7 +85,41 @@ public class BufferPool {
      */
     public PageBuffer allocateBufferPage() {
         //轮训游标,均衡分配内存页
-        return pageBufferList[cursor.getAndIncrement() % pageBufferList.length];
+        return pageBufferList[(cursor.getAndIncrement() & Integer.MAX_VALUE) % pageBufferList.length];
+    }
+
+    /**
+     * 获取全部内存页,用于查看各页的使用情况
+     *
+     * @return 内存页列表
+     */
+    public List<PageBuffer> getPageBuffers() {
+        return Collections.unmodifiableList(Arrays.asList(pageBufferList));
+    }
+
+    /**
+     * 内存页分配方式
+     */
+    public enum Allocator {
+        /**
+         * 链表首次适应,空闲块由定时任务合并
+         */
+        LINKED,
+        /**
+         * 2的幂规格的伙伴分配,带线程缓存
+         */
+        BUDDY;
+
+        static Allocator of(String name) {
+            return "buddy".equalsIgnoreCase(name) ? BUDDY : LINKED;
+        }
+    }
+
+    /**
+     * 延迟创建的整理线程
+     */
+    private static class Cleaner {
+        private static final HashedWheelTimer TIMER = new HashedWheelTimer("BufferPoolClean");
     }
 
 }
@@ -0,0 +1,126 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.core.io;
+
+import org.aoju.bus.core.lang.Console;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link VirtualBuffer}泄漏检测
+ * 按采样率记录申请时的调用栈,若缓冲区在未调用{@link VirtualBuffer#clean()}的情况下被回收,
+ * 则输出其申请位置;通过系统属性{@value #SAMPLING}开启,值为采样间隔,如100表示每100次申请记录一次
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public final class LeakDetector {
+
+    public static final String SAMPLING = "bus-core.bufferPool.leakSampling";
+
+    private static final LongAdder LEAKS = new LongAdder();
+    private static final Set<Record> RECORDS = ConcurrentHashMap.newKeySet();
+    private static final ReferenceQueue<VirtualBuffer> QUEUE = new ReferenceQueue<>();
+
+    private static volatile int sampling = Integer.getInteger(SAMPLING, 0);
+
+    private LeakDetector() {
+
+    }
+
+    /**
+     * 设置采样间隔
+     *
+     * @param interval 采样间隔, 小于等于0时关闭检测
+     */
+    public static void setSampling(int interval) {
+        sampling = interval;
+    }
+
+    /**
+     * @return 已发现的泄漏数量
+     */
+    public static long getLeaks() {
+        return LEAKS.sum();
+    }
+
+    /**
+     * 按采样率跟踪缓冲区
+     *
+     * @param buffer 新申请的缓冲区
+     * @return 跟踪记录, 未被采样时返回null
+     */
+    static Record track(VirtualBuffer buffer) {
+        int interval = sampling;
+        if (interval <= 0) {
+            return null;
+        }
+        report();
+        if (interval > 1 && ThreadLocalRandom.current().nextInt(interval) != 0) {
+            return null;
+        }
+        Record record = new Record(buffer);
+        RECORDS.add(record);
+        return record;
+    }
+
+    /**
+     * 缓冲区已正常释放
+     *
+     * @param record 跟踪记录
+     */
+    static void close(Record record) {
+        if (RECORDS.remove(record)) {
+            record.clear();
+        }
+    }
+
+    private static void report() {
+        Record record;
+        while ((record = (Record) QUEUE.poll()) != null) {
+            if (RECORDS.remove(record)) {
+                LEAKS.increment();
+                Console.error(record.trace, "LEAK: VirtualBuffer was garbage-collected without clean(), allocated at:");
+            }
+        }
+    }
+
+    static final class Record extends WeakReference<VirtualBuffer> {
+
+        private final Throwable trace;
+
+        private Record(VirtualBuffer buffer) {
+            super(buffer, QUEUE);
+            this.trace = new Throwable("allocated by " + Thread.currentThread().getName());
+        }
+    }
+
+}
@@ -29,6 +29,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -40,6 +41,15 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public class PageBuffer {
 
+    /**
+     * 线程缓存的最大块阶,更大的块直接归还内存页
+     */
+    private static final int CACHE_MAX_ORDER = 15;
+    /**
+     * 线程缓存中每个阶的最大块数
+     */
+    private static final int CACHE_SIZE = 8;
+
     /**
      * 当前空闲的虚拟Buffer
      */
@@ -57,14 +67,51 @@ public class PageBuffer {
 
     private long lastAllocateTime;
 
+    /**
+     * 伙伴分配器,为null时使用链表首次适应分配
+     */
+    private final BuddyAllocator buddy;
+    /**
+     * 线程级的空闲块缓存
+     */
+    private final ThreadLocal<Cache> caches;
+    /**
+     * 全部线程缓存,用于回收已结束线程缓存中的块
+     */
+    private final ConcurrentLinkedQueue<Cache> threadCaches = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder used = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
     /**
      * @param size   缓存页大小
      * @param direct 是否使用堆外内存
      */
     PageBuffer(int size, boolean direct) {
-        availableBuffers = new LinkedList<>();
+        this(size, direct, BufferPool.Allocator.LINKED);
+    }
+
+    /**
+     * @param size      缓存页大小
+     * @param direct    是否使用堆外内存
+     * @param allocator 分配方式
+     */
+    PageBuffer(int size, boolean direct, BufferPool.Allocator allocator) {
         this.buffer = allocate0(size, direct);
-        availableBuffers.add(new VirtualBuffer(this, null, buffer.position(), buffer.limit()));
+        if (allocator == BufferPool.Allocator.BUDDY) {
+            this.buddy = new BuddyAllocator(size);
+            this.caches = ThreadLocal.withInitial(() -> {
+                Cache cache = new Cache(Thread.currentThread());
+                threadCaches.offer(cache);
+                return cache;
+            });
+        } else {
+            this.buddy = null;
+            this.caches = null;
+            availableBuffers = new LinkedList<>();
+            availableBuffers.add(new VirtualBuffer(this, null, buffer.position(), buffer.limit()));
+        }
     }
 
     /**
@@ -79,6 +126,43 @@ public class PageBuffer {
     }
 
     public VirtualBuffer allocate(final int size) {
+        VirtualBuffer virtualBuffer = buddy == null ? allocateLinked(size) : allocateBuddy(size);
+        if (virtualBuffer.isPaged()) {
+            allocations.increment();
+            used.add(virtualBuffer.getParentLimit() - virtualBuffer.getParentPosition());
+            virtualBuffer.track(LeakDetector.track(virtualBuffer));
+        } else {
+            fallbacks.increment();
+        }
+        return virtualBuffer;
+    }
+
+    /**
+     * 伙伴分配: 优先从线程缓存中获取同阶的块,新分配的块记录申请线程
+     */
+    private VirtualBuffer allocateBuddy(final int size) {
+        final int order = BuddyAllocator.order(size);
+        if (order <= CACHE_MAX_ORDER) {
+            VirtualBuffer cached = caches.get().poll(order);
+            if (cached != null) {
+                cached.buffer().clear();
+                cached.buffer(cached.buffer());
+                return cached;
+            }
+        }
+        int offset = buddy.allocate(order);
+        if (offset < 0) {
+            return new VirtualBuffer(null, allocate0(size, false), 0, 0);
+        }
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(offset + (1 << order));
+        duplicate.position(offset);
+        VirtualBuffer virtualBuffer = new VirtualBuffer(this, duplicate.slice(), offset, offset + (1 << order));
+        virtualBuffer.setOwner(Thread.currentThread());
+        return virtualBuffer;
+    }
+
+    private VirtualBuffer allocateLinked(final int size) {
         lastAllocateTime = System.currentTimeMillis();
         VirtualBuffer cleanBuffer = cleanBuffers.poll();
         if (cleanBuffer != null && cleanBuffer.getParentLimit() - cleanBuffer.getParentPosition() >= size) {
@@ -132,6 +216,11 @@ public class PageBuffer {
     }
 
     void clean(VirtualBuffer cleanBuffer) {
+        used.add(cleanBuffer.getParentPosition() - cleanBuffer.getParentLimit());
+        if (buddy != null) {
+            cleanBuddy(cleanBuffer);
+            return;
+        }
         if (cleanBuffers.offer(cleanBuffer)) {
             return;
         }
@@ -143,7 +232,60 @@ public class PageBuffer {
         }
     }
 
+    /**
+     * 伙伴释放: 申请线程自己释放时放入其线程缓存,其他线程释放的块直接归还伙伴分配器,
+     * 避免只释放不申请的线程缓存大量块
+     */
+    private void cleanBuddy(VirtualBuffer cleanBuffer) {
+        final int offset = cleanBuffer.getParentPosition();
+        final int order = BuddyAllocator.order(cleanBuffer.getParentLimit() - offset);
+        if (order <= CACHE_MAX_ORDER && cleanBuffer.getOwner() == Thread.currentThread()
+                && caches.get().offer(order, cleanBuffer)) {
+            return;
+        }
+        buddy.free(offset, order);
+    }
+
+    /**
+     * @return 内存页容量
+     */
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return 已分配出去尚未释放的字节数
+     */
+    public long getUsed() {
+        return used.sum();
+    }
+
+    /**
+     * @return 内存页使用率
+     */
+    public double getUtilization() {
+        return (double) used.sum() / buffer.capacity();
+    }
+
+    /**
+     * @return 从内存页分配的次数
+     */
+    public long getAllocations() {
+        return allocations.sum();
+    }
+
+    /**
+     * @return 内存页空间不足时改用堆内临时缓冲区的次数
+     */
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
     void tryClean() {
+        if (buddy != null) {
+            reclaimCaches();
+            return;
+        }
         if (System.currentTimeMillis() - lastAllocateTime < 1000 || !lock.tryLock()) {
             return;
         }
@@ -158,6 +300,25 @@ public class PageBuffer {
 
     }
 
+    /**
+     * 将已结束线程缓存中的块归还伙伴分配器
+     */
+    private void reclaimCaches() {
+        for (Iterator<Cache> iterator = threadCaches.iterator(); iterator.hasNext(); ) {
+            Cache cache = iterator.next();
+            // 线程结束前的操作对isAlive()返回false的线程可见
+            if (!cache.thread.isAlive()) {
+                iterator.remove();
+                for (int order = BuddyAllocator.MIN_ORDER; order <= CACHE_MAX_ORDER; order++) {
+                    VirtualBuffer cached;
+                    while ((cached = cache.poll(order)) != null) {
+                        buddy.free(cached.getParentPosition(), order);
+                    }
+                }
+            }
+        }
+    }
+
     private void clean0(VirtualBuffer cleanBuffer) {
         int index = 0;
         Iterator<VirtualBuffer> iterator = availableBuffers.iterator();
@@ -192,4 +353,38 @@ public class PageBuffer {
         availableBuffers.add(cleanBuffer);
     }
 
+    /**
+     * 线程缓存,每个阶一个定长栈,只由所属线程访问,线程结束后由定时任务回收
+     */
+    private static final class Cache {
+
+        private final Thread thread;
+        private final VirtualBuffer[][] stacks = new VirtualBuffer[CACHE_MAX_ORDER - BuddyAllocator.MIN_ORDER + 1][CACHE_SIZE];
+        private final int[] sizes = new int[stacks.length];
+
+        Cache(Thread thread) {
+            this.thread = thread;
+        }
+
+        VirtualBuffer poll(int order) {
+            int index = order - BuddyAllocator.MIN_ORDER;
+            if (sizes[index] == 0) {
+                return null;
+            }
+            VirtualBuffer[] stack = stacks[index];
+            VirtualBuffer buffer = stack[--sizes[index]];
+            stack[sizes[index]] = null;
+            return buffer;
+        }
+
+        boolean offer(int order, VirtualBuffer buffer) {
+            int index = order - BuddyAllocator.MIN_ORDER;
+            if (sizes[index] == CACHE_SIZE) {
+                return false;
+            }
+            stacks[index][sizes[index]++] = buffer;
+            return true;
+        }
+    }
+
 }
@@ -24,211 +24,400 @@
  ********************************************************************************/
 package org.aoju.bus.core.io;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * 基于序号的无锁环形缓冲区
+ * 每个槽位维护一个序号: 等于位置表示可写,等于位置+1表示可读,
+ * 读取完成后推进一圈重新变为可写;生产者与消费者通过CAS推进各自的游标,
+ * 游标按缓存行填充以避免伪共享
+ * <p>
+ * 容量向上取整为2的幂,{@link #get(int)}等方法的下标为槽位下标
+ *
  * @author Kimi Liu
  * @version 5.8.1
  * @since JDK 1.8+
  */
 public final class RingBuffer<T> {
 
-    private static final byte READABLE = 1, READING = 1 << 1, WRITEABLE = 1 << 2, WRITING = 1 << 3;
     /**
-     * 排队的项目
+     * 事件槽位
      */
     private final Node<T>[] items;
     /**
-     * 主锁保护所有入口
+     * 槽位序号
      */
-    private final ReentrantLock lock;
+    private final AtomicLongArray sequences;
     /**
-     * 等待条件
+     * 下标掩码
      */
-    private final Condition notEmpty;
+    private final int mask;
     /**
-     * 等待权条件
+     * 下一个写入位置
      */
-    private final Condition notFull;
+    private final Cursor tail = new Cursor();
     /**
-     * 项目索引为下一次采取，投票删除
+     * 下一个读取位置
      */
-    private int takeIndex;
+    private final Cursor head = new Cursor();
     /**
-     * 项目索引的下一个出售，出价，或增加
+     * 生产者模式
      */
-    private int putIndex;
-    private volatile boolean needFullSingle = false;
-
-    private volatile boolean needEmptySingle = false;
+    private final ProducerType producerType;
+    /**
+     * 等待策略
+     */
+    private final WaitStrategy waitStrategy;
+    /**
+     * 阻塞等待使用的锁与条件
+     */
+    private final ReentrantLock lock = new ReentrantLock(false);
+    private final Condition notify = lock.newCondition();
+    private volatile int waiters;
 
-    private EventFactory<T> eventFactory;
+    private final EventFactory<T> eventFactory;
 
     public RingBuffer(int capacity, EventFactory<T> factory) {
-        if (capacity <= 0)
+        this(capacity, factory, ProducerType.MULTI, WaitStrategy.BLOCKING);
+    }
+
+    public RingBuffer(int capacity, EventFactory<T> factory, ProducerType producerType, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || capacity > 1 << 30)
             throw new IllegalArgumentException();
-        this.items = new Node[capacity];
-        lock = new ReentrantLock(false);
-        notEmpty = lock.newCondition();
-        notFull = lock.newCondition();
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.items = new Node[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            items[i] = new Node<>(factory.newInstance());
+            sequences.set(i, i);
+        }
         this.eventFactory = factory;
+        this.producerType = producerType;
+        this.waitStrategy = waitStrategy;
     }
 
+    /**
+     * 申请一个可写槽位,缓冲区已满时按等待策略等待
+     *
+     * @return 槽位下标
+     * @throws InterruptedException 线程中断
+     */
     public int nextWriteIndex() throws InterruptedException {
-        final ReentrantLock lock = this.lock;
-        lock.lockInterruptibly();
-        try {
-            notFullSignal();
-            final Node<T>[] items = this.items;
-            Node<T> node = items[putIndex];
-            if (node == null) {
-                node = new Node<>(eventFactory.newInstance());
-                node.status = WRITEABLE;
-                items[putIndex] = node;
-            }
-            while (node.status != WRITEABLE) {
-                notFull.await();
-                notFullSignal();
-                node = items[putIndex];
-            }
-
-            node.status = WRITING;
-            int index = putIndex;
-            if (++putIndex == items.length)
-                putIndex = 0;
-            return index;
-        } finally {
-            lock.unlock();
+        int index;
+        int attempts = 0;
+        while ((index = tryNextWriteIndex(1)) < 0) {
+            await(attempts++, true);
         }
+        return index;
     }
 
+    /**
+     * 申请一个可写槽位
+     *
+     * @return 槽位下标, 缓冲区已满时返回-1
+     * @throws InterruptedException 线程中断
+     */
     public int tryNextWriteIndex() throws InterruptedException {
-        final ReentrantLock lock = this.lock;
-        lock.lockInterruptibly();
-        try {
-            notFullSignal();
-            final Node<T>[] items = this.items;
-            Node<T> node = items[putIndex];
-            if (node == null) {
-                node = new Node<>(eventFactory.newInstance());
-                node.status = WRITEABLE;
-                items[putIndex] = node;
+        return tryNextWriteIndex(1);
+    }
+
+    /**
+     * 批量申请连续的n个可写槽位,只有全部可写时才会成功
+     *
+     * @param n 槽位数量
+     * @return 第一个槽位下标, 可写槽位不足时返回-1
+     */
+    public int tryNextWriteIndex(int n) {
+        checkBatch(n);
+        long pos = tail.get();
+        for (; ; ) {
+            if (!isWritable(pos, n)) {
+                long current = tail.get();
+                if (current == pos) {
+                    return -1;
+                }
+                pos = current;
+                continue;
             }
-            if (node.status != WRITEABLE) {
-                return -1;
+            if (producerType == ProducerType.SINGLE) {
+                tail.lazySet(pos + n);
+                break;
             }
-
-            node.status = WRITING;
-            int index = putIndex;
-            if (++putIndex == items.length)
-                putIndex = 0;
-            return index;
-        } finally {
-            lock.unlock();
+            if (tail.compareAndSet(pos, pos + n)) {
+                break;
+            }
+            pos = tail.get();
+        }
+        for (int i = 0; i < n; i++) {
+            items[(int) ((pos + i) & mask)].position = pos + i;
         }
+        return (int) (pos & mask);
     }
 
     public void publishWriteIndex(int sequence) {
-        Node<T> node = items[sequence];
-        if (node.status != WRITING) {
-            throw new RuntimeException("invalid status");
-        }
-        node.status = READABLE;
-        final ReentrantLock lock = this.lock;
-        needEmptySingle = true;
-        if (lock.tryLock()) {
-            try {
-                notFullSignal();
-            } finally {
-                lock.unlock();
+        publishWriteIndex(sequence, 1);
+    }
+
+    /**
+     * 发布从sequence开始的n个已写入槽位
+     *
+     * @param sequence 第一个槽位下标
+     * @param n        槽位数量
+     */
+    public void publishWriteIndex(int sequence, int n) {
+        for (int i = 0; i < n; i++) {
+            int index = (sequence + i) & mask;
+            long position = items[index].position;
+            if (sequences.get(index) != position) {
+                throw new RuntimeException("invalid status");
             }
+            sequences.lazySet(index, position + 1);
         }
+        signal();
     }
 
     public T get(int sequence) {
         return items[sequence].entity;
     }
 
+    /**
+     * 申请一个可读槽位
+     *
+     * @return 槽位下标, 无可读数据时返回-1
+     */
     public int tryNextReadIndex() {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-        try {
-            notFullSignal();
-            final Node[] items = this.items;
-            Node x = items[takeIndex];
-            if (x == null || x.status != READABLE) {
-                return -1;
+        return tryNextReadIndex(1);
+    }
+
+    /**
+     * 批量申请连续的n个可读槽位,只有全部可读时才会成功
+     *
+     * @param n 槽位数量
+     * @return 第一个槽位下标, 可读槽位不足时返回-1
+     */
+    public int tryNextReadIndex(int n) {
+        checkBatch(n);
+        long pos = head.get();
+        for (; ; ) {
+            if (!isReadable(pos, n)) {
+                long current = head.get();
+                if (current == pos) {
+                    return -1;
+                }
+                pos = current;
+                continue;
+            }
+            if (head.compareAndSet(pos, pos + n)) {
+                return (int) (pos & mask);
             }
-            x.status = READING;
-            int index = takeIndex;
-            if (++takeIndex == items.length)
-                takeIndex = 0;
-            return index;
-        } finally {
-            lock.unlock();
+            pos = head.get();
         }
     }
 
+    /**
+     * 申请一个可读槽位,无可读数据时按等待策略等待
+     *
+     * @return 槽位下标
+     * @throws InterruptedException 线程中断
+     */
     public int nextReadIndex() throws InterruptedException {
-        final ReentrantLock lock = this.lock;
-        lock.lockInterruptibly();
-        try {
-            notFullSignal();
-            final Node[] items = this.items;
-            Node x = items[takeIndex];
-            while (x == null || x.status != READABLE) {
-                notEmpty.await();
-                notFullSignal();
-                x = items[takeIndex];
+        int index;
+        int attempts = 0;
+        while ((index = tryNextReadIndex(1)) < 0) {
+            await(attempts++, false);
+        }
+        return index;
+    }
+
+    public void publishReadIndex(int sequence) {
+        publishReadIndex(sequence, 1);
+    }
+
+    /**
+     * 释放从sequence开始的n个已读取槽位
+     *
+     * @param sequence 第一个槽位下标
+     * @param n        槽位数量
+     */
+    public void publishReadIndex(int sequence, int n) {
+        for (int i = 0; i < n; i++) {
+            int index = (sequence + i) & mask;
+            long position = sequences.get(index) - 1;
+            if ((position & mask) != index) {
+                throw new RuntimeException("invalid status");
             }
-            x.status = READING;
-            int index = takeIndex;
-            if (++takeIndex == items.length)
-                takeIndex = 0;
-            return index;
-        } finally {
-            lock.unlock();
+            eventFactory.restEntity(items[index].entity);
+            sequences.lazySet(index, position + items.length);
         }
+        signal();
+    }
+
+    /**
+     * @return 缓冲区容量
+     */
+    public int capacity() {
+        return items.length;
+    }
+
+    /**
+     * @return 已申请写入但尚未被读取的槽位数量
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
     }
 
-    private void notFullSignal() {
-        if (needFullSingle) {
-            notFull.signal();
-            needFullSingle = false;
+    private boolean isWritable(long pos, int n) {
+        for (int i = n - 1; i >= 0; i--) {
+            if (sequences.get((int) ((pos + i) & mask)) != pos + i) {
+                return false;
+            }
         }
-        if (needEmptySingle) {
-            notEmpty.signal();
-            needEmptySingle = false;
+        return true;
+    }
+
+    private boolean isReadable(long pos, int n) {
+        for (int i = n - 1; i >= 0; i--) {
+            if (sequences.get((int) ((pos + i) & mask)) != pos + i + 1) {
+                return false;
+            }
         }
+        return true;
     }
 
-    public void publishReadIndex(int sequence) {
-        Node<T> node = items[sequence];
-        if (node.status != READING) {
-            throw new RuntimeException("invalid status");
-        }
-        eventFactory.restEntity(node.entity);
-        node.status = WRITEABLE;
-        final ReentrantLock lock = this.lock;
-        needFullSingle = true;
-        if (lock.tryLock()) {
+    private void checkBatch(int n) {
+        if (n <= 0 || n > items.length) {
+            throw new IllegalArgumentException("invalid batch size: " + n);
+        }
+    }
+
+    private void await(int attempts, boolean write) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            case PARK:
+                LockSupport.parkNanos(attempts < 100 ? 1000L : 100_000L);
+                break;
+            default:
+                // 先短暂自旋,仍无进展时再进入阻塞
+                if (attempts < 100) {
+                    Thread.yield();
+                    break;
+                }
+                lock.lockInterruptibly();
+                try {
+                    waiters++;
+                    if (write ? !isWritable(tail.get(), 1) : !isReadable(head.get(), 1)) {
+                        notify.await(10, TimeUnit.MILLISECONDS);
+                    }
+                } finally {
+                    waiters--;
+                    lock.unlock();
+                }
+        }
+    }
+
+    private void signal() {
+        if (waiters > 0) {
+            lock.lock();
             try {
-                notFullSignal();
+                notify.signalAll();
             } finally {
                 lock.unlock();
             }
         }
     }
 
-    class Node<T1> {
+    /**
+     * 生产者模式
+     */
+    public enum ProducerType {
+        /**
+         * 单生产者,申请槽位时无需CAS
+         */
+        SINGLE,
+        /**
+         * 多生产者
+         */
+        MULTI
+    }
+
+    /**
+     * 等待策略
+     */
+    public enum WaitStrategy {
+        /**
+         * 忙等,延迟最低,占用CPU
+         */
+        BUSY_SPIN,
+        /**
+         * 让出CPU后重试
+         */
+        YIELD,
+        /**
+         * 短暂休眠后重试
+         */
+        PARK,
+        /**
+         * 自旋后阻塞等待唤醒
+         */
+        BLOCKING
+    }
+
+    static class Node<T1> {
 
-        byte status;
-        T1 entity;
+        final T1 entity;
+        long position;
 
         Node(T1 entity) {
             this.entity = entity;
         }
     }
 
+    static class LhsPadding {
+        protected long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    static class Value extends LhsPadding {
+        protected volatile long value;
+    }
+
+    static class RhsPadding extends Value {
+        protected long p9, p10, p11, p12, p13, p14, p15;
+    }
+
+    /**
+     * 缓存行填充的游标
+     */
+    static final class Cursor extends RhsPadding {
+
+        private static final AtomicLongFieldUpdater<Value> UPDATER = AtomicLongFieldUpdater.newUpdater(Value.class, "value");
+
+        long get() {
+            return value;
+        }
+
+        void lazySet(long newValue) {
+            UPDATER.lazySet(this, newValue);
+        }
+
+        boolean compareAndSet(long expect, long update) {
+            return UPDATER.compareAndSet(this, expect, update);
+        }
+    }
+
 }
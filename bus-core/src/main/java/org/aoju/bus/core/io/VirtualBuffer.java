@@ -55,6 +55,14 @@ public final class VirtualBuffer {
      * 当前虚拟buffer映射的实际buffer.limit
      */
     private int parentLimit;
+    /**
+     * 泄漏检测记录
+     */
+    private LeakDetector.Record leak;
+    /**
+     * 伙伴分配时申请该块的线程,只有该线程释放时才放入线程缓存
+     */
+    private Thread owner;
 
     VirtualBuffer(PageBuffer pageBuffer, ByteBuffer buffer, int parentPosition, int parentLimit) {
         this.pageBuffer = pageBuffer;
@@ -79,6 +87,22 @@ public final class VirtualBuffer {
         this.parentLimit = parentLimit;
     }
 
+    boolean isPaged() {
+        return pageBuffer != null;
+    }
+
+    Thread getOwner() {
+        return owner;
+    }
+
+    void setOwner(Thread owner) {
+        this.owner = owner;
+    }
+
+    void track(LeakDetector.Record leak) {
+        this.leak = leak;
+    }
+
     public ByteBuffer buffer() {
         return buffer;
     }
@@ -94,6 +118,10 @@ public final class VirtualBuffer {
             throw new RuntimeException();
         }
         clean = true;
+        if (leak != null) {
+            LeakDetector.close(leak);
+            leak = null;
+        }
         if (pageBuffer != null) {
             pageBuffer.clean(this);
         }
@@ -169,5 +169,9 @@ public class Header {
      * The header Sec-WebSocket-Version
      */
     public static final String SEC_WEBSOCKET_VERSION = "Sec-WebSocket-Version";
+    /**
+     * The header Sec-WebSocket-Extensions
+     */
+    public static final String SEC_WEBSOCKET_EXTENSIONS = "Sec-WebSocket-Extensions";
 
 }
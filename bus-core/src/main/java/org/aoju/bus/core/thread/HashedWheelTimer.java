@@ -0,0 +1,326 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.core.thread;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 哈希时间轮定时器
+ * 任务按到期时间散列到环形的槽中,由单个线程逐格推进并执行到期任务,
+ * 添加、取消与重新计时都是O(1)操作;{@link Timeout}可反复重新计时而无需创建新对象,
+ * 适合大量连接各自持有超时任务的场景
+ * 到期精度为一格的时长,任务在工作线程中执行,应当简短且不阻塞
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public class HashedWheelTimer {
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_SCHEDULED = 1;
+    private static final int STATE_CANCELLED = 2;
+    private static final int STATE_EXPIRED = 3;
+
+    private final long tickNanos;
+    private final Timeout[] heads;
+    private final Timeout[] tails;
+    private final int mask;
+    private final long startTime;
+    private final Thread worker;
+    /**
+     * 下一个待处理的刻度
+     */
+    private long tick;
+    private int pending;
+    private volatile boolean stopped;
+
+    /**
+     * @param name 工作线程名称
+     */
+    public HashedWheelTimer(String name) {
+        this(name, 100, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * @param name          工作线程名称
+     * @param tickDuration  每格时长
+     * @param unit          时间单位
+     * @param ticksPerWheel 槽数,向上取整为2的幂
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration <= 0: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+            throw new IllegalArgumentException("ticksPerWheel out of range: " + ticksPerWheel);
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.heads = new Timeout[size];
+        this.tails = new Timeout[size];
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::work, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 创建尚未计时的任务,之后通过{@link Timeout#reschedule}反复计时
+     *
+     * @param task 任务
+     * @return 超时对象
+     */
+    public Timeout newTimeout(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("task == null");
+        }
+        return new Timeout(task);
+    }
+
+    /**
+     * 延迟执行一次任务
+     *
+     * @param task  任务
+     * @param delay 延迟时间
+     * @param unit  时间单位
+     * @return 超时对象
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = newTimeout(task);
+        timeout.reschedule(delay, unit);
+        return timeout;
+    }
+
+    /**
+     * 按固定频率执行任务
+     *
+     * @param task         任务
+     * @param initialDelay 首次延迟
+     * @param period       执行周期
+     * @param unit         时间单位
+     * @return 超时对象, 取消后不再执行
+     */
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period <= 0: " + period);
+        }
+        Timeout timeout = newTimeout(task);
+        timeout.period = unit.toNanos(period);
+        timeout.reschedule(initialDelay, unit);
+        return timeout;
+    }
+
+    /**
+     * @return 等待执行的任务数
+     */
+    public synchronized int pending() {
+        return pending;
+    }
+
+    /**
+     * 停止工作线程,未到期的任务不再执行,之后的计时请求抛出{@link IllegalStateException}
+     */
+    public void stop() {
+        stopped = true;
+        LockSupport.unpark(worker);
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    private void add(Timeout timeout) {
+        long ticks = Math.max(timeout.deadline / tickNanos, tick);
+        timeout.remainingRounds = (ticks - tick) >> Integer.numberOfTrailingZeros(heads.length);
+        int index = (int) (ticks & mask);
+        timeout.bucket = index;
+        timeout.prev = tails[index];
+        timeout.next = null;
+        if (tails[index] == null) {
+            heads[index] = timeout;
+        } else {
+            tails[index].next = timeout;
+        }
+        tails[index] = timeout;
+        timeout.state = STATE_SCHEDULED;
+        pending++;
+    }
+
+    private void remove(Timeout timeout) {
+        int index = timeout.bucket;
+        if (timeout.prev == null) {
+            heads[index] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next == null) {
+            tails[index] = timeout.prev;
+        } else {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        pending--;
+    }
+
+    private void work() {
+        while (!stopped) {
+            long deadline;
+            synchronized (this) {
+                deadline = (tick + 1) * tickNanos;
+            }
+            long sleepNanos;
+            while ((sleepNanos = deadline - (System.nanoTime() - startTime)) > 0 && !stopped) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+            if (stopped) {
+                return;
+            }
+
+            Timeout expired = null;
+            synchronized (this) {
+                int index = (int) (tick & mask);
+                for (Timeout timeout = heads[index]; timeout != null; ) {
+                    Timeout next = timeout.next;
+                    if (timeout.remainingRounds <= 0) {
+                        remove(timeout);
+                        timeout.state = STATE_EXPIRED;
+                        timeout.nextExpired = expired;
+                        expired = timeout;
+                    } else {
+                        timeout.remainingRounds--;
+                    }
+                    timeout = next;
+                }
+                tick++;
+            }
+
+            while (expired != null) {
+                Timeout timeout = expired;
+                expired = timeout.nextExpired;
+                timeout.nextExpired = null;
+                try {
+                    timeout.task.run();
+                } catch (Throwable e) {
+                    worker.getUncaughtExceptionHandler().uncaughtException(worker, e);
+                }
+                if (timeout.period > 0) {
+                    synchronized (this) {
+                        // 执行期间未被取消或重新计时
+                        if (timeout.state == STATE_EXPIRED) {
+                            timeout.deadline += timeout.period;
+                            add(timeout);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 时间轮中的任务,可取消或重新计时
+     */
+    public final class Timeout {
+
+        private final Runnable task;
+        private long deadline;
+        private long period;
+        private long remainingRounds;
+        private int bucket;
+        private int state = STATE_IDLE;
+        private Timeout prev;
+        private Timeout next;
+        private Timeout nextExpired;
+
+        Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * 从现在起重新计时,尚未到期的计时将被替换,不会创建新对象
+         * 已取消的任务不再计时,调用将被忽略
+         *
+         * @param delay 延迟时间
+         * @param unit  时间单位
+         * @throws IllegalStateException 时间轮已停止
+         */
+        public void reschedule(long delay, TimeUnit unit) {
+            long deadline = System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay));
+            synchronized (HashedWheelTimer.this) {
+                if (stopped) {
+                    throw new IllegalStateException("timer has been stopped");
+                }
+                if (state == STATE_CANCELLED) {
+                    return;
+                }
+                if (state == STATE_SCHEDULED) {
+                    remove(this);
+                }
+                this.deadline = deadline;
+                add(this);
+            }
+        }
+
+        /**
+         * 取消任务,已开始执行的任务不受影响
+         *
+         * @return 如果任务此前在等待执行
+         */
+        public boolean cancel() {
+            synchronized (HashedWheelTimer.this) {
+                boolean scheduled = state == STATE_SCHEDULED;
+                if (scheduled) {
+                    remove(this);
+                }
+                state = STATE_CANCELLED;
+                return scheduled;
+            }
+        }
+
+        public boolean isCancelled() {
+            synchronized (HashedWheelTimer.this) {
+                return state == STATE_CANCELLED;
+            }
+        }
+
+        public boolean isExpired() {
+            synchronized (HashedWheelTimer.this) {
+                return state == STATE_EXPIRED;
+            }
+        }
+
+        public Runnable task() {
+            return task;
+        }
+
+    }
+
+}
@@ -40,6 +40,7 @@ import org.aoju.bus.http.secure.CertificateChainCleaner;
 import org.aoju.bus.http.secure.CertificatePinner;
 import org.aoju.bus.http.secure.OkHostnameVerifier;
 import org.aoju.bus.http.socket.RealWebSocket;
+import org.aoju.bus.http.socket.WebSocketExtensions;
 import org.aoju.bus.http.socket.WebSocket;
 import org.aoju.bus.http.socket.WebSocketListener;
 
@@ -210,6 +211,14 @@ public class Httpd implements Cloneable, NewCall.Factory, WebSocket.Factory {
      * Web socket ping间隔(毫秒)
      */
     final int pingInterval;
+    /**
+     * Web socket握手时提议的扩展
+     */
+    final WebSocketExtensions webSocketExtensions;
+    /**
+     * Web socket是否合并写出排队的消息
+     */
+    final boolean webSocketBatchWrites;
 
     public Httpd() {
         this(new Builder());
@@ -262,6 +271,8 @@ public class Httpd implements Cloneable, NewCall.Factory, WebSocket.Factory {
         this.readTimeout = builder.readTimeout;
         this.writeTimeout = builder.writeTimeout;
         this.pingInterval = builder.pingInterval;
+        this.webSocketExtensions = builder.webSocketExtensions;
+        this.webSocketBatchWrites = builder.webSocketBatchWrites;
 
         if (interceptors.contains(null)) {
             throw new IllegalStateException("Null interceptor: " + interceptors);
@@ -288,7 +299,8 @@ public class Httpd implements Cloneable, NewCall.Factory, WebSocket.Factory {
 
     @Override
     public WebSocket newWebSocket(Request request, WebSocketListener listener) {
-        RealWebSocket webSocket = new RealWebSocket(request, listener, new Random(), pingInterval);
+        RealWebSocket webSocket = new RealWebSocket(request, listener, new Random(), pingInterval,
+                webSocketExtensions, webSocketBatchWrites);
         webSocket.connect(this);
         return webSocket;
     }
@@ -314,6 +326,14 @@ public class Httpd implements Cloneable, NewCall.Factory, WebSocket.Factory {
         return pingInterval;
     }
 
+    public WebSocketExtensions webSocketExtensions() {
+        return webSocketExtensions;
+    }
+
+    public boolean webSocketBatchWrites() {
+        return webSocketBatchWrites;
+    }
+
     public Proxy proxy() {
         return proxy;
     }
@@ -437,6 +457,8 @@ public class Httpd implements Cloneable, NewCall.Factory, WebSocket.Factory {
         int readTimeout;
         int writeTimeout;
         int pingInterval;
+        WebSocketExtensions webSocketExtensions;
+        boolean webSocketBatchWrites;
 
         public Builder() {
             dispatcher = new Dispatcher();
@@ -494,6 +516,8 @@ public class Httpd implements Cloneable, NewCall.Factory, WebSocket.Factory {
             this.readTimeout = httpd.readTimeout;
             this.writeTimeout = httpd.writeTimeout;
             this.pingInterval = httpd.pingInterval;
+            this.webSocketExtensions = httpd.webSocketExtensions;
+            this.webSocketBatchWrites = httpd.webSocketBatchWrites;
         }
 
         /**
@@ -619,6 +643,30 @@ public class Httpd implements Cloneable, NewCall.Factory, WebSocket.Factory {
             return this;
         }
 
+        /**
+         * 设置web套接字握手时提议的扩展,例如{@link WebSocketExtensions#deflate()}
+         * 服务端接受后,不小于1KB的消息将被压缩传输;默认不协商任何扩展
+         *
+         * @param extensions 扩展提议
+         * @return 构造器
+         */
+        public Builder webSocketExtensions(WebSocketExtensions extensions) {
+            this.webSocketExtensions = extensions;
+            return this;
+        }
+
+        /**
+         * 设置web套接字是否合并写出:排队的多条小消息写入同一缓冲区,队列清空后统一写出,
+         * 以减少socket写操作;适用于高频推送的短消息
+         *
+         * @param batchWrites 是否合并写出
+         * @return 构造器
+         */
+        public Builder webSocketBatchWrites(boolean batchWrites) {
+            this.webSocketBatchWrites = batchWrites;
+            return this;
+        }
+
         /**
          * 设置此客户端创建的连接将使用的HTTP代理。它优先于{@link #proxySelector}，
          * 后者仅在此代理为空(默认为空)时才被启用。要完全禁用代理使用，请调用{@code proxy(proxy . no_proxy)}
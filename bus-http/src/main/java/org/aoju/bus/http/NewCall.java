@@ -28,6 +28,7 @@ import org.aoju.bus.core.io.Timeout;
 import org.aoju.bus.http.bodys.ResponseBody;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 调用是准备执行的请求。电话可以取消。
@@ -70,6 +71,37 @@ public interface NewCall extends Cloneable {
      */
     void enqueue(Callback callback);
 
+    /**
+     * 以{@link CompletableFuture}形式异步执行请求,便于组合多个调用
+     * 请求经{@link #enqueue(Callback)}调度;取消返回的future会同时取消此调用
+     * 响应体的关闭仍由调用者负责
+     *
+     * @return 完成时携带响应,失败时携带异常
+     * @throws IllegalStateException 当调用已经执行.
+     */
+    default CompletableFuture<Response> executeAsync() {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        future.whenComplete((response, e) -> {
+            if (future.isCancelled()) {
+                cancel();
+            }
+        });
+        enqueue(new Callback() {
+            @Override
+            public void onFailure(NewCall call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(NewCall call, Response response) {
+                if (!future.complete(response)) {
+                    response.close();
+                }
+            }
+        });
+        return future;
+    }
+
     /**
      * 如果可能，取消请求。已经完成的请求不能被取消.
      */
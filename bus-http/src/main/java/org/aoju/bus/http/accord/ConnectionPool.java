@@ -28,6 +28,7 @@ import org.aoju.bus.core.utils.IoUtils;
 import org.aoju.bus.http.Address;
 import org.aoju.bus.http.Builder;
 import org.aoju.bus.http.Route;
+import org.aoju.bus.http.UnoUrl;
 import org.aoju.bus.http.accord.platform.Platform;
 
 import java.lang.ref.Reference;
@@ -58,10 +59,31 @@ public final class ConnectionPool {
             new SynchronousQueue<>(), Builder.threadFactory("Httpd ConnectionPool", true));
     public final Deque<RealConnection> connections = new ArrayDeque<>();
     public final RouteDatabase routeDatabase = new RouteDatabase();
+    /**
+     * 按主机与端口索引的连接,查找可复用连接时只需遍历同一主机的连接
+     */
+    private final Map<String, Deque<RealConnection>> hostConnections = new HashMap<>();
+    /**
+     * HTTP/2连接,用于跨主机的连接合并
+     */
+    private final Set<RealConnection> multiplexedConnections = new LinkedHashSet<>();
     /**
      * 每个地址的最大空闲连接数.
      */
     private final int maxIdleConnections;
+    /**
+     * 每个主机的最大空闲连接数.
+     */
+    private final int maxIdlePerHost;
+    /**
+     * 每个主机最多的HTTP/2连接数
+     */
+    private final int maxMultiplexedPerHost;
+    /**
+     * 负载最低的HTTP/2连接上的流达到此数量时,为该主机新建连接
+     */
+    private final int stripeThreshold;
+    private long evictionCount;
     private final long keepAliveDurationNs;
     boolean cleanupRunning;
     private final Runnable cleanupRunnable = () -> {
@@ -91,12 +113,48 @@ public final class ConnectionPool {
     }
 
     public ConnectionPool(int maxIdleConnections, long keepAliveDuration, TimeUnit timeUnit) {
+        this(maxIdleConnections, Integer.MAX_VALUE, keepAliveDuration, timeUnit);
+    }
+
+    /**
+     * @param maxIdleConnections 最大空闲连接数
+     * @param maxIdlePerHost     每个主机的最大空闲连接数
+     * @param keepAliveDuration  空闲连接的存活时间
+     * @param timeUnit           时间单位
+     */
+    public ConnectionPool(int maxIdleConnections, int maxIdlePerHost, long keepAliveDuration, TimeUnit timeUnit) {
+        this(maxIdleConnections, maxIdlePerHost, keepAliveDuration, timeUnit, 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 默认每个主机的流都复用同一个HTTP/2连接,负载较高时会受限于服务端的
+     * {@code SETTINGS_MAX_CONCURRENT_STREAMS}以及单个TCP连接的队头阻塞;
+     * 此时可允许每个主机建立多个HTTP/2连接,新的流分配到当前流最少的连接上
+     *
+     * @param maxIdleConnections    最大空闲连接数
+     * @param maxIdlePerHost        每个主机的最大空闲连接数
+     * @param keepAliveDuration     空闲连接的存活时间
+     * @param timeUnit              时间单位
+     * @param maxMultiplexedPerHost 每个主机最多的HTTP/2连接数
+     * @param stripeThreshold       负载最低的连接上的流达到此数量时才新建连接
+     */
+    public ConnectionPool(int maxIdleConnections, int maxIdlePerHost, long keepAliveDuration, TimeUnit timeUnit,
+                          int maxMultiplexedPerHost, int stripeThreshold) {
         this.maxIdleConnections = maxIdleConnections;
+        this.maxIdlePerHost = maxIdlePerHost;
         this.keepAliveDurationNs = timeUnit.toNanos(keepAliveDuration);
+        this.maxMultiplexedPerHost = maxMultiplexedPerHost;
+        this.stripeThreshold = stripeThreshold;
 
         if (keepAliveDuration <= 0) {
             throw new IllegalArgumentException("keepAliveDuration <= 0: " + keepAliveDuration);
         }
+        if (maxMultiplexedPerHost < 1) {
+            throw new IllegalArgumentException("maxMultiplexedPerHost < 1: " + maxMultiplexedPerHost);
+        }
+        if (stripeThreshold < 1) {
+            throw new IllegalArgumentException("stripeThreshold < 1: " + stripeThreshold);
+        }
     }
 
     /**
@@ -134,10 +192,39 @@ public final class ConnectionPool {
      */
     public RealConnection get(Address address, StreamAllocation streamAllocation, Route route) {
         assert (Thread.holdsLock(this));
-        for (RealConnection connection : connections) {
-            if (connection.isEligible(address, route)) {
-                streamAllocation.acquire(connection, true);
-                return connection;
+        Deque<RealConnection> candidates = hostConnections.get(key(address.url()));
+        if (candidates != null) {
+            RealConnection leastLoaded = null;
+            int multiplexed = 0;
+            for (RealConnection connection : candidates) {
+                if (connection.isMultiplexed()) {
+                    if (!connection.noNewStreams) multiplexed++;
+                    // 选择流最少的HTTP/2连接
+                    if ((leastLoaded == null || connection.allocations.size() < leastLoaded.allocations.size())
+                            && connection.isEligible(address, route)) {
+                        leastLoaded = connection;
+                    }
+                } else if (connection.isEligible(address, route)) {
+                    streamAllocation.acquire(connection, true);
+                    return connection;
+                }
+            }
+            if (leastLoaded != null) {
+                if (leastLoaded.allocations.size() >= stripeThreshold && multiplexed < maxMultiplexedPerHost) {
+                    // 所有连接都已较忙且未达上限:不复用也不合并,由调用方新建连接
+                    return null;
+                }
+                streamAllocation.acquire(leastLoaded, true);
+                return leastLoaded;
+            }
+        }
+        // 不同主机只有在已知路由时才可能合并到同一个HTTP/2连接
+        if (route != null) {
+            for (RealConnection connection : multiplexedConnections) {
+                if (connection.isEligible(address, route)) {
+                    streamAllocation.acquire(connection, true);
+                    return connection;
+                }
             }
         }
         return null;
@@ -153,7 +240,21 @@ public final class ConnectionPool {
      */
     public Socket deduplicate(Address address, StreamAllocation streamAllocation) {
         assert (Thread.holdsLock(this));
-        for (RealConnection connection : connections) {
+        Deque<RealConnection> candidates = hostConnections.get(key(address.url()));
+        if (candidates == null) {
+            return null;
+        }
+        if (maxMultiplexedPerHost > 1) {
+            // 新连接是有意建立的条带连接,只有超出上限(并发建立)时才合并
+            int multiplexed = 0;
+            for (RealConnection connection : candidates) {
+                if (connection.isMultiplexed() && !connection.noNewStreams) multiplexed++;
+            }
+            if (multiplexed <= maxMultiplexedPerHost) {
+                return null;
+            }
+        }
+        for (RealConnection connection : candidates) {
             if (connection.isEligible(address, null)
                     && connection.isMultiplexed()
                     && connection != streamAllocation.connection()) {
@@ -170,6 +271,11 @@ public final class ConnectionPool {
             executor.execute(cleanupRunnable);
         }
         connections.add(connection);
+        hostConnections.computeIfAbsent(key(connection.route().address().url()), k -> new ArrayDeque<>())
+                .add(connection);
+        if (connection.isMultiplexed()) {
+            multiplexedConnections.add(connection);
+        }
     }
 
     /**
@@ -181,7 +287,7 @@ public final class ConnectionPool {
     public boolean connectionBecameIdle(RealConnection connection) {
         assert (Thread.holdsLock(this));
         if (connection.noNewStreams || maxIdleConnections == 0) {
-            connections.remove(connection);
+            remove(connection);
             return true;
         } else {
             // 唤醒清理线程:可能已经超过了空闲连接限制
@@ -202,6 +308,8 @@ public final class ConnectionPool {
                     connection.noNewStreams = true;
                     evictedConnections.add(connection);
                     i.remove();
+                    unindex(connection);
+                    evictionCount++;
                 }
             }
         }
@@ -223,9 +331,13 @@ public final class ConnectionPool {
         int idleConnectionCount = 0;
         RealConnection longestIdleConnection = null;
         long longestIdleDurationNs = Long.MIN_VALUE;
+        RealConnection hostIdleConnection = null;
+        long hostIdleDurationNs = Long.MIN_VALUE;
 
         // 找到与清除的联系，或者下一次清除的时间
         synchronized (this) {
+            Map<String, Integer> hostIdleCounts = maxIdlePerHost < Integer.MAX_VALUE ? new HashMap<>() : null;
+            List<RealConnection> idleConnections = hostIdleCounts != null ? new ArrayList<>() : null;
             for (Iterator<RealConnection> i = connections.iterator(); i.hasNext(); ) {
                 RealConnection connection = i.next();
 
@@ -243,12 +355,34 @@ public final class ConnectionPool {
                     longestIdleDurationNs = idleDurationNs;
                     longestIdleConnection = connection;
                 }
+
+                if (hostIdleCounts != null) {
+                    hostIdleCounts.merge(key(connection.route().address().url()), 1, Integer::sum);
+                    idleConnections.add(connection);
+                }
+            }
+
+            // 先统计完各主机的空闲数,再从超出单个主机空闲上限的主机中选出空闲最久的连接
+            if (hostIdleCounts != null) {
+                for (RealConnection connection : idleConnections) {
+                    long idleDurationNs = now - connection.idleAtNanos;
+                    if (idleDurationNs > hostIdleDurationNs
+                            && hostIdleCounts.get(key(connection.route().address().url())) > maxIdlePerHost) {
+                        hostIdleDurationNs = idleDurationNs;
+                        hostIdleConnection = connection;
+                    }
+                }
             }
 
             if (longestIdleDurationNs >= this.keepAliveDurationNs
                     || idleConnectionCount > this.maxIdleConnections) {
                 // 我们发现了与驱逐有关的证据。将它从列表中移除，然后在下面(同步块外部)关闭它
-                connections.remove(longestIdleConnection);
+                remove(longestIdleConnection);
+                evictionCount++;
+            } else if (hostIdleConnection != null) {
+                longestIdleConnection = hostIdleConnection;
+                remove(longestIdleConnection);
+                evictionCount++;
             } else if (idleConnectionCount > 0) {
                 // 一个连接将准备驱逐很快.
                 return keepAliveDurationNs - longestIdleDurationNs;
@@ -267,6 +401,71 @@ public final class ConnectionPool {
         return 0;
     }
 
+    public int maxMultiplexedPerHost() {
+        return maxMultiplexedPerHost;
+    }
+
+    public int stripeThreshold() {
+        return stripeThreshold;
+    }
+
+    /**
+     * 返回被驱逐的空闲连接总数
+     *
+     * @return 驱逐数量
+     */
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 返回每个主机的连接情况快照,键为"主机:端口"
+     *
+     * @return 主机连接统计
+     */
+    public synchronized Map<String, HostStats> hostStats() {
+        Map<String, HostStats> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Deque<RealConnection>> entry : hostConnections.entrySet()) {
+            int idle = 0;
+            int inUse = 0;
+            int streams = 0;
+            for (RealConnection connection : entry.getValue()) {
+                int allocations = connection.allocations.size();
+                if (allocations == 0) {
+                    idle++;
+                } else {
+                    inUse++;
+                }
+                if (connection.isMultiplexed()) {
+                    streams += allocations;
+                }
+            }
+            result.put(entry.getKey(), new HostStats(idle, inUse, streams));
+        }
+        return result;
+    }
+
+    private void remove(RealConnection connection) {
+        connections.remove(connection);
+        unindex(connection);
+    }
+
+    private void unindex(RealConnection connection) {
+        String key = key(connection.route().address().url());
+        Deque<RealConnection> deque = hostConnections.get(key);
+        if (deque != null) {
+            deque.remove(connection);
+            if (deque.isEmpty()) {
+                hostConnections.remove(key);
+            }
+        }
+        multiplexedConnections.remove(connection);
+    }
+
+    private static String key(UnoUrl url) {
+        return url.host() + ":" + url.port();
+    }
+
     /**
      * 删除任何泄漏的分配，然后返回{@code connection}上剩余的活动分配的数量。
      * 泄漏检测是不精确的，并且依赖于垃圾收集
@@ -304,4 +503,46 @@ public final class ConnectionPool {
         return references.size();
     }
 
+    /**
+     * 单个主机的连接统计
+     */
+    public static final class HostStats {
+
+        private final int idle;
+        private final int inUse;
+        private final int streams;
+
+        HostStats(int idle, int inUse, int streams) {
+            this.idle = idle;
+            this.inUse = inUse;
+            this.streams = streams;
+        }
+
+        /**
+         * @return 空闲连接数
+         */
+        public int idle() {
+            return idle;
+        }
+
+        /**
+         * @return 使用中的连接数
+         */
+        public int inUse() {
+            return inUse;
+        }
+
+        /**
+         * @return HTTP/2连接上的活动流数量
+         */
+        public int streams() {
+            return streams;
+        }
+
+        @Override
+        public String toString() {
+            return "HostStats{idle=" + idle + ", inUse=" + inUse + ", streams=" + streams + "}";
+        }
+    }
+
 }
@@ -0,0 +1,181 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.http.bodys;
+
+import org.aoju.bus.core.io.*;
+import org.aoju.bus.core.lang.MediaType;
+import org.aoju.bus.core.utils.IoUtils;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+/**
+ * 压缩传输的请求体
+ * 内容在写出时经{@link GzipSink}或{@link DeflaterSink}流式压缩,不会在内存中缓冲整个请求体;
+ * 已知长度小于阈值的请求体按原样发送
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public class CompressedBody extends RequestBody {
+
+    /**
+     * 默认的压缩阈值
+     */
+    public static final long DEFAULT_MIN_SIZE = 1024;
+
+    private final RequestBody delegate;
+    private final Encoding encoding;
+    private final long minSize;
+
+    private CompressedBody(RequestBody delegate, Encoding encoding, long minSize) {
+        if (delegate == null) throw new NullPointerException("delegate == null");
+        if (encoding == null) throw new NullPointerException("encoding == null");
+        if (minSize < 0) throw new IllegalArgumentException("minSize < 0: " + minSize);
+        this.delegate = delegate;
+        this.encoding = encoding;
+        this.minSize = minSize;
+    }
+
+    /**
+     * 以gzip压缩请求体
+     *
+     * @param body 请求体
+     * @return 压缩后的请求体
+     */
+    public static CompressedBody gzip(RequestBody body) {
+        return create(body, Encoding.GZIP, DEFAULT_MIN_SIZE);
+    }
+
+    /**
+     * 以deflate压缩请求体
+     *
+     * @param body 请求体
+     * @return 压缩后的请求体
+     */
+    public static CompressedBody deflate(RequestBody body) {
+        return create(body, Encoding.DEFLATE, DEFAULT_MIN_SIZE);
+    }
+
+    /**
+     * 压缩请求体,不可重复的请求体压缩后同样不可重复
+     *
+     * @param body     请求体
+     * @param encoding 压缩方式
+     * @param minSize  压缩阈值,长度已知且小于该值时不压缩
+     * @return 压缩后的请求体
+     */
+    public static CompressedBody create(RequestBody body, Encoding encoding, long minSize) {
+        return body instanceof UnrepeatableBody
+                ? new Unrepeatable(body, encoding, minSize)
+                : new CompressedBody(body, encoding, minSize);
+    }
+
+    /**
+     * @return 实际使用的{@code Content-Encoding},不压缩时为null
+     * @throws IOException 异常
+     */
+    public String contentEncoding() throws IOException {
+        return compressed() ? encoding.value : null;
+    }
+
+    public RequestBody delegate() {
+        return delegate;
+    }
+
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    public long minSize() {
+        return minSize;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return compressed() ? -1 : delegate.contentLength();
+    }
+
+    @Override
+    public void writeTo(BufferSink sink) throws IOException {
+        if (!compressed()) {
+            delegate.writeTo(sink);
+            return;
+        }
+        // 压缩流关闭时写出尾部,但不关闭下层的网络输出
+        Sink target = new DelegateSink(sink) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        BufferSink compressedSink = IoUtils.buffer(encoding == Encoding.GZIP
+                ? new GzipSink(target)
+                : new DeflaterSink(target, new Deflater(Deflater.DEFAULT_COMPRESSION)));
+        try {
+            delegate.writeTo(compressedSink);
+        } finally {
+            compressedSink.close();
+        }
+    }
+
+    private boolean compressed() throws IOException {
+        long length = delegate.contentLength();
+        return length == -1 || length >= minSize;
+    }
+
+    /**
+     * 压缩方式
+     */
+    public enum Encoding {
+        GZIP("gzip"),
+        DEFLATE("deflate");
+
+        private final String value;
+
+        Encoding(String value) {
+            this.value = value;
+        }
+
+        public String value() {
+            return value;
+        }
+    }
+
+    static final class Unrepeatable extends CompressedBody implements UnrepeatableBody {
+
+        Unrepeatable(RequestBody delegate, Encoding encoding, long minSize) {
+            super(delegate, encoding, minSize);
+        }
+
+    }
+
+}
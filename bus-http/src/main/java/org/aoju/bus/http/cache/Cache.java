@@ -64,12 +64,25 @@ public final class Cache implements Closeable, Flushable {
     private static final int ENTRY_METADATA = 0;
     private static final int ENTRY_BODY = 1;
     private static final int ENTRY_COUNT = 2;
+    /**
+     * 异步模式下日志的最长刷新间隔与批量大小
+     */
+    private static final long JOURNAL_FLUSH_MILLIS = 100;
+    private static final int JOURNAL_BATCH_SIZE = 64;
     final DiskLruCache cache;
+    /**
+     * 内存缓存,按访问顺序淘汰,由自身加锁
+     */
+    private final LinkedHashMap<String, MemoryEntry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxMemorySize;
+    private final long maxMemoryEntrySize;
+    private long memorySize;
     int writeSuccessCount;
     int writeAbortCount;
     private int networkCount;
     private int hitCount;
     private int requestCount;
+    private int memoryHitCount;
     public final InternalCache internalCache = new InternalCache() {
 
         @Override
@@ -113,8 +126,46 @@ public final class Cache implements Closeable, Flushable {
         this(directory, maxSize, FileSystem.SYSTEM);
     }
 
+    /**
+     * 在{@code directory}中创建最多{@code maxSize}字节的缓存,
+     * 并在磁盘之前增加最多{@code maxMemorySize}字节的内存缓存,用于较小的热点响应
+     *
+     * @param directory     目录
+     * @param maxSize       缓存的最大大小(以字节为单位)
+     * @param maxMemorySize 内存缓存的最大大小(以字节为单位),0表示不使用内存缓存
+     */
+    public Cache(File directory, long maxSize, long maxMemorySize) {
+        this(directory, maxSize, FileSystem.SYSTEM, maxMemorySize);
+    }
+
+    /**
+     * 创建异步模式的缓存: 日志批量写入,索引在后台加载,加载完成之前请求直接绕过缓存
+     *
+     * @param directory     目录
+     * @param maxSize       缓存的最大大小(以字节为单位)
+     * @param maxMemorySize 内存缓存的最大大小(以字节为单位),0表示不使用内存缓存
+     * @param async         是否使用异步模式
+     */
+    public Cache(File directory, long maxSize, long maxMemorySize, boolean async) {
+        this(directory, maxSize, FileSystem.SYSTEM, maxMemorySize);
+        if (async) {
+            cache.setJournalGroupCommit(JOURNAL_FLUSH_MILLIS, JOURNAL_BATCH_SIZE);
+            cache.initializeAsync();
+        }
+    }
+
     Cache(File directory, long maxSize, FileSystem fileSystem) {
+        this(directory, maxSize, fileSystem, 0);
+    }
+
+    Cache(File directory, long maxSize, FileSystem fileSystem, long maxMemorySize) {
+        if (maxMemorySize < 0) {
+            throw new IllegalArgumentException("maxMemorySize < 0: " + maxMemorySize);
+        }
         this.cache = DiskLruCache.create(fileSystem, directory, VERSION, ENTRY_COUNT, maxSize);
+        this.maxMemorySize = maxMemorySize;
+        // 单个响应最多占用内存缓存的四分之一
+        this.maxMemoryEntrySize = maxMemorySize / 4;
     }
 
     public static String key(UnoUrl url) {
@@ -136,6 +187,17 @@ public final class Cache implements Closeable, Flushable {
 
     Response get(Request request) {
         String key = key(request.url());
+        MemoryEntry memoryEntry = getMemory(key);
+        if (memoryEntry != null) {
+            Response response = memoryEntry.response();
+            if (memoryEntry.entry.matches(request, response)) {
+                synchronized (this) {
+                    memoryHitCount++;
+                }
+                return response;
+            }
+        }
+
         DiskLruCache.Snapshot snapshot;
         Entry entry;
         try {
@@ -162,6 +224,21 @@ public final class Cache implements Closeable, Flushable {
             return null;
         }
 
+        // 较小的响应读入内存,之后的命中无需再访问磁盘
+        long contentLength = response.body().contentLength();
+        if (maxMemorySize > 0 && contentLength >= 0 && contentLength <= maxMemoryEntrySize) {
+            try {
+                ByteString body = response.body().source().readByteString();
+                memoryEntry = new MemoryEntry(entry, body, snapshot.sequenceNumber());
+                putMemoryIfCurrent(key, memoryEntry);
+                return memoryEntry.response();
+            } catch (IOException e) {
+                return null;
+            } finally {
+                IoUtils.close(response.body());
+            }
+        }
+
         return response;
     }
 
@@ -187,26 +264,42 @@ public final class Cache implements Closeable, Flushable {
         }
 
         Entry entry = new Entry(response);
+        String key = key(response.request().url());
+        removeMemory(key);
         DiskLruCache.Editor editor = null;
         try {
-            editor = cache.edit(key(response.request().url()));
+            editor = cache.edit(key);
             if (editor == null) {
                 return null;
             }
             entry.writeTo(editor);
-            return new CacheRequestImpl(editor);
+            long contentLength = response.body() != null ? response.body().contentLength() : -1;
+            boolean memorable = maxMemoryEntrySize > 0 && contentLength <= maxMemoryEntrySize;
+            return new CacheRequestImpl(editor, key, memorable, entry);
         } catch (IOException e) {
             abortQuietly(editor);
             return null;
         }
     }
 
+    /**
+     * 先删除磁盘条目再清除内存条目,删除前读到的快照无法再写入内存缓存
+     */
     void remove(Request request) throws IOException {
-        cache.remove(key(request.url()));
+        String key = key(request.url());
+        try {
+            cache.remove(key);
+        } finally {
+            removeMemory(key);
+        }
     }
 
     void update(Response cached, Response network) {
         Entry entry = new Entry(network);
+        if (cached.body() instanceof MemoryResponseBody) {
+            updateMemory(cached, entry);
+            return;
+        }
         DiskLruCache.Snapshot snapshot = ((CacheResponseBody) cached.body()).snapshot;
         DiskLruCache.Editor editor = null;
         try {
@@ -221,6 +314,89 @@ public final class Cache implements Closeable, Flushable {
         }
     }
 
+    /**
+     * 更新来自内存缓存的响应,同时写回磁盘
+     * 与{@link #update}一样只在磁盘条目仍是读取时的版本时更新,磁盘提交成功后才替换内存条目
+     */
+    private void updateMemory(Response cached, Entry entry) {
+        String key = key(cached.request().url());
+        MemoryResponseBody cachedBody = (MemoryResponseBody) cached.body();
+
+        DiskLruCache.Editor editor = null;
+        try {
+            // 如果条目已被其他写入替换，则返回null
+            editor = cache.edit(key, cachedBody.sequenceNumber);
+            if (editor != null) {
+                entry.writeTo(editor);
+                BufferSink sink = IoUtils.buffer(editor.newSink(ENTRY_BODY));
+                sink.write(cachedBody.body);
+                sink.close();
+                editor.commit();
+                long sequenceNumber = editor.committedSequenceNumber();
+                if (sequenceNumber != DiskLruCache.ANY_SEQUENCE_NUMBER) {
+                    putMemoryIfCurrent(key, new MemoryEntry(entry, cachedBody.body, sequenceNumber));
+                }
+            }
+        } catch (IOException e) {
+            abortQuietly(editor);
+        }
+    }
+
+    private MemoryEntry getMemory(String key) {
+        if (maxMemorySize == 0) {
+            return null;
+        }
+        synchronized (memory) {
+            return memory.get(key);
+        }
+    }
+
+    private void putMemory(String key, MemoryEntry entry) {
+        if (entry.weight > maxMemoryEntrySize) {
+            removeMemory(key);
+            return;
+        }
+        synchronized (memory) {
+            MemoryEntry previous = memory.put(key, entry);
+            if (previous != null) {
+                memorySize -= previous.weight;
+            }
+            memorySize += entry.weight;
+            Iterator<MemoryEntry> iterator = memory.values().iterator();
+            while (memorySize > maxMemorySize && iterator.hasNext()) {
+                memorySize -= iterator.next().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 仅当内存条目对应的磁盘条目仍是当前版本时写入,检查与写入在磁盘缓存锁内完成,
+     * 磁盘条目被替换或删除后读到的旧快照不会进入内存缓存
+     */
+    private void putMemoryIfCurrent(String key, MemoryEntry entry) {
+        cache.ifCurrent(key, entry.sequenceNumber, () -> putMemory(key, entry));
+    }
+
+    private void removeMemory(String key) {
+        if (maxMemorySize == 0) {
+            return;
+        }
+        synchronized (memory) {
+            MemoryEntry previous = memory.remove(key);
+            if (previous != null) {
+                memorySize -= previous.weight;
+            }
+        }
+    }
+
+    private void clearMemory() {
+        synchronized (memory) {
+            memory.clear();
+            memorySize = 0;
+        }
+    }
+
     private void abortQuietly(DiskLruCache.Editor editor) {
         // 放弃，因为缓存无法写入
         try {
@@ -247,7 +423,11 @@ public final class Cache implements Closeable, Flushable {
      * @throws IOException 删除异常
      */
     public void delete() throws IOException {
-        cache.delete();
+        try {
+            cache.delete();
+        } finally {
+            clearMemory();
+        }
     }
 
     /**
@@ -256,7 +436,11 @@ public final class Cache implements Closeable, Flushable {
      * @throws IOException 清除异常
      */
     public void evictAll() throws IOException {
-        cache.evictAll();
+        try {
+            cache.evictAll();
+        } finally {
+            clearMemory();
+        }
     }
 
 
@@ -272,6 +456,7 @@ public final class Cache implements Closeable, Flushable {
             final Iterator<DiskLruCache.Snapshot> delegate = cache.snapshots();
 
             String nextUrl;
+            String lastUrl;
             boolean canRemove;
 
             @Override
@@ -300,6 +485,7 @@ public final class Cache implements Closeable, Flushable {
             public String next() {
                 if (!hasNext()) throw new NoSuchElementException();
                 String result = nextUrl;
+                lastUrl = result;
                 nextUrl = null;
                 canRemove = true;
                 return result;
@@ -309,6 +495,7 @@ public final class Cache implements Closeable, Flushable {
             public void remove() {
                 if (!canRemove) throw new IllegalStateException("remove() before next()");
                 delegate.remove();
+                removeMemory(ByteString.encodeUtf8(lastUrl).md5().hex());
             }
         };
     }
@@ -329,6 +516,19 @@ public final class Cache implements Closeable, Flushable {
         return cache.getMaxSize();
     }
 
+    /**
+     * @return 内存缓存当前占用的字节数
+     */
+    public long memorySize() {
+        synchronized (memory) {
+            return memorySize;
+        }
+    }
+
+    public long maxMemorySize() {
+        return maxMemorySize;
+    }
+
     @Override
     public void flush() throws IOException {
         cache.flush();
@@ -375,6 +575,15 @@ public final class Cache implements Closeable, Flushable {
         return requestCount;
     }
 
+    /**
+     * 返回由内存缓存直接提供的响应数,这些响应同时计入{@link #hitCount()}或{@link #networkCount()}
+     *
+     * @return 内存缓存命中数
+     */
+    public synchronized int memoryHitCount() {
+        return memoryHitCount;
+    }
+
     private static final class Entry {
         /**
          * 合成响应标头:请求发送时的本地时间
@@ -597,6 +806,10 @@ public final class Cache implements Closeable, Flushable {
         public Response response(DiskLruCache.Snapshot snapshot) {
             String contentType = responseHeaders.get(Header.CONTENT_TYPE);
             String contentLength = responseHeaders.get(Header.CONTENT_LENGTH);
+            return response(new CacheResponseBody(snapshot, contentType, contentLength));
+        }
+
+        Response response(ResponseBody body) {
             Request cacheRequest = new Request.Builder()
                     .url(url)
                     .method(requestMethod, null)
@@ -608,7 +821,7 @@ public final class Cache implements Closeable, Flushable {
                     .code(code)
                     .message(message)
                     .headers(responseHeaders)
-                    .body(new CacheResponseBody(snapshot, contentType, contentLength))
+                    .body(body)
                     .handshake(handshake)
                     .sentRequestAtMillis(sentRequestMillis)
                     .receivedResponseAtMillis(receivedResponseMillis)
@@ -664,10 +877,27 @@ public final class Cache implements Closeable, Flushable {
         private Sink cacheOut;
         private Sink body;
 
-        CacheRequestImpl(final DiskLruCache.Editor editor) {
+        CacheRequestImpl(final DiskLruCache.Editor editor, final String key, final boolean memorable, final Entry entry) {
             this.editor = editor;
             this.cacheOut = editor.newSink(ENTRY_BODY);
             this.body = new DelegateSink(cacheOut) {
+                /**
+                 * 同时写入内存缓存的响应体,超出大小时放弃
+                 */
+                Buffer memoryBody = memorable ? new Buffer() : null;
+
+                @Override
+                public void write(Buffer source, long byteCount) throws IOException {
+                    if (memoryBody != null) {
+                        if (memoryBody.size() + byteCount <= maxMemoryEntrySize) {
+                            source.copyTo(memoryBody, 0, byteCount);
+                        } else {
+                            memoryBody = null;
+                        }
+                    }
+                    super.write(source, byteCount);
+                }
+
                 @Override
                 public void close() throws IOException {
                     synchronized (Cache.this) {
@@ -679,6 +909,13 @@ public final class Cache implements Closeable, Flushable {
                     }
                     super.close();
                     editor.commit();
+                    long sequenceNumber = editor.committedSequenceNumber();
+                    if (memoryBody != null && sequenceNumber != DiskLruCache.ANY_SEQUENCE_NUMBER) {
+                        putMemoryIfCurrent(key, new MemoryEntry(entry, memoryBody.readByteString(), sequenceNumber));
+                    } else {
+                        // 提交前读到的旧快照可能已进入内存缓存
+                        removeMemory(key);
+                    }
                 }
             };
         }
@@ -705,4 +942,64 @@ public final class Cache implements Closeable, Flushable {
         }
     }
 
+    /**
+     * 内存缓存项: 已解析的响应元数据与响应体
+     */
+    private static final class MemoryEntry {
+
+        final Entry entry;
+        final ByteString body;
+        final long weight;
+        /**
+         * 对应磁盘条目的序列号,更新时据此判断磁盘条目是否已被替换
+         */
+        final long sequenceNumber;
+
+        MemoryEntry(Entry entry, ByteString body, long sequenceNumber) {
+            this.entry = entry;
+            this.body = body;
+            this.sequenceNumber = sequenceNumber;
+            long headerSize = 0;
+            for (int i = 0, size = entry.responseHeaders.size(); i < size; i++) {
+                headerSize += entry.responseHeaders.name(i).length() + entry.responseHeaders.value(i).length();
+            }
+            // 粗略估算元数据占用,字符按两个字节计算
+            this.weight = body.size() + 2 * (headerSize + entry.url.length()) + 256;
+        }
+
+        Response response() {
+            return entry.response(new MemoryResponseBody(body,
+                    entry.responseHeaders.get(Header.CONTENT_TYPE), sequenceNumber));
+        }
+    }
+
+    private static class MemoryResponseBody extends ResponseBody {
+        final ByteString body;
+        final long sequenceNumber;
+        private final String contentType;
+        private final BufferSource bodySource;
+
+        MemoryResponseBody(ByteString body, String contentType, long sequenceNumber) {
+            this.body = body;
+            this.sequenceNumber = sequenceNumber;
+            this.contentType = contentType;
+            this.bodySource = new Buffer().write(body);
+        }
+
+        @Override
+        public MediaType contentType() {
+            return contentType != null ? MediaType.valueOf(contentType) : null;
+        }
+
+        @Override
+        public long contentLength() {
+            return body.size();
+        }
+
+        @Override
+        public BufferSource source() {
+            return bodySource;
+        }
+    }
+
 }
@@ -33,8 +33,10 @@ import org.aoju.bus.logger.Logger;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -62,6 +64,17 @@ public final class DiskLruCache implements Closeable, Flushable {
     private static final String DIRTY = "DIRTY";
     private static final String REMOVE = "REMOVE";
     private static final String READ = "READ";
+    /**
+     * 日志批量刷新的调度线程,所有缓存共用
+     */
+    private static final ScheduledThreadPoolExecutor journalScheduler;
+
+    static {
+        journalScheduler = new ScheduledThreadPoolExecutor(1,
+                Builder.threadFactory("Httpd DiskLruCache Journal", true));
+        journalScheduler.setKeepAliveTime(60L, TimeUnit.SECONDS);
+        journalScheduler.allowCoreThreadTimeOut(true);
+    }
 
     final FileSystem fileSystem;
     /**
@@ -85,6 +98,38 @@ public final class DiskLruCache implements Closeable, Flushable {
     boolean closed;
     boolean mostRecentTrimFailed;
     boolean mostRecentRebuildFailed;
+    /**
+     * 后台初始化进行中,此时读写请求直接绕过缓存
+     */
+    volatile boolean initializing;
+    /**
+     * 后台初始化期间收到的删除请求,初始化完成后统一执行
+     */
+    private final Set<String> pendingRemovals = ConcurrentHashMap.newKeySet();
+    /**
+     * 日志批量刷新的最长等待时间,为0时每次编辑都同步刷新
+     */
+    private long journalFlushMillis;
+    /**
+     * 日志累计达到该记录数时立即刷新
+     */
+    private int journalBatchSize;
+    private int pendingJournalRecords;
+    private boolean journalFlushScheduled;
+    private final Runnable journalFlushRunnable = () -> {
+        synchronized (DiskLruCache.this) {
+            journalFlushScheduled = false;
+            pendingJournalRecords = 0;
+            if (!initialized || closed || journalWriter == null) {
+                return;
+            }
+            try {
+                journalWriter.flush();
+            } catch (IOException e) {
+                hasJournalErrors = true;
+            }
+        }
+    };
     /**
      * 存用于存储其数据的最大字节数
      */
@@ -162,6 +207,60 @@ public final class DiskLruCache implements Closeable, Flushable {
         return new DiskLruCache(fileSystem, directory, appVersion, valueCount, maxSize, executor);
     }
 
+    /**
+     * 在后台线程中读取日志并建立索引,完成之前{@link #get}与{@link #edit}直接返回null,
+     * {@link #size}返回0,{@link #flush}直接返回,{@link #remove}登记后在初始化完成时执行,
+     * 调用方无需等待初始化
+     */
+    public void initializeAsync() {
+        synchronized (this) {
+            if (initialized || initializing) {
+                return;
+            }
+            initializing = true;
+        }
+        executor.execute(() -> {
+            try {
+                synchronized (DiskLruCache.this) {
+                    try {
+                        initialize();
+                    } finally {
+                        initializing = false;
+                    }
+                    applyPendingRemovals();
+                }
+            } catch (IOException | RuntimeException e) {
+                Logger.warn("DiskLruCache " + directory + " failed to initialize: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * @return 缓存是否已完成初始化
+     */
+    public synchronized boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * 启用日志批量提交: CLEAN/REMOVE/READ记录先写入内存,由后台线程在达到等待时间或记录数时统一刷新,
+     * 编辑提交不再同步等待日志写入磁盘;DIRTY记录仍在创建文件前同步刷新
+     * 进程异常退出时可能丢失最近未刷新的记录,对应条目停留在DIRTY状态,重新打开时其文件会被删除
+     *
+     * @param flushMillis 最长等待时间(毫秒), 0表示每次编辑都同步刷新
+     * @param batchSize   累计记录数达到该值时立即刷新
+     */
+    public synchronized void setJournalGroupCommit(long flushMillis, int batchSize) {
+        if (flushMillis < 0) {
+            throw new IllegalArgumentException("flushMillis < 0");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize <= 0");
+        }
+        this.journalFlushMillis = flushMillis;
+        this.journalBatchSize = batchSize;
+    }
+
     public synchronized void initialize() throws IOException {
         assert Thread.holdsLock(this);
 
@@ -169,6 +268,14 @@ public final class DiskLruCache implements Closeable, Flushable {
             return;
         }
 
+        initialize0();
+        // 后台初始化由后台线程在清除标志后执行;后台初始化失败时由此处补执行
+        if (!initializing) {
+            applyPendingRemovals();
+        }
+    }
+
+    private void initialize0() throws IOException {
         // 如果存在bkp文件，就使用它
         if (fileSystem.exists(journalFileBackup)) {
             // 如果日志文件也存在，删除备份文件
@@ -370,24 +477,28 @@ public final class DiskLruCache implements Closeable, Flushable {
      * @return the 快照信息
      * @throws IOException 异常
      */
-    public synchronized Snapshot get(String key) throws IOException {
-        initialize();
+    public Snapshot get(String key) throws IOException {
+        if (initializing) return null;
 
-        checkNotClosed();
-        validateKey(key);
-        Entry entry = lruEntries.get(key);
-        if (entry == null || !entry.readable) return null;
+        synchronized (this) {
+            initialize();
 
-        Snapshot snapshot = entry.snapshot();
-        if (snapshot == null) return null;
+            checkNotClosed();
+            validateKey(key);
+            Entry entry = lruEntries.get(key);
+            if (entry == null || !entry.readable) return null;
 
-        redundantOpCount++;
-        journalWriter.writeUtf8(READ).writeByte(Symbol.C_SPACE).writeUtf8(key).writeByte(Symbol.C_LF);
-        if (journalRebuildRequired()) {
-            executor.execute(cleanupRunnable);
-        }
+            Snapshot snapshot = entry.snapshot();
+            if (snapshot == null) return null;
 
-        return snapshot;
+            redundantOpCount++;
+            journalWriter.writeUtf8(READ).writeByte(Symbol.C_SPACE).writeUtf8(key).writeByte(Symbol.C_LF);
+            if (journalRebuildRequired()) {
+                executor.execute(cleanupRunnable);
+            }
+
+            return snapshot;
+        }
     }
 
     /**
@@ -401,7 +512,15 @@ public final class DiskLruCache implements Closeable, Flushable {
         return edit(key, ANY_SEQUENCE_NUMBER);
     }
 
-    synchronized Editor edit(String key, long expectedSequenceNumber) throws IOException {
+    Editor edit(String key, long expectedSequenceNumber) throws IOException {
+        if (initializing) return null;
+
+        synchronized (this) {
+            return edit0(key, expectedSequenceNumber);
+        }
+    }
+
+    private Editor edit0(String key, long expectedSequenceNumber) throws IOException {
         initialize();
 
         checkNotClosed();
@@ -419,7 +538,8 @@ public final class DiskLruCache implements Closeable, Flushable {
             return null;
         }
 
-        // 在创建文件之前刷新日志，以防止文件泄漏
+        // 在创建文件之前刷新日志，以防止文件泄漏;DIRTY记录不参与批量提交,
+        // 崩溃后未跟随CLEAN/REMOVE的DIRTY条目会在processJournal中删除其文件
         journalWriter.writeUtf8(DIRTY).writeByte(Symbol.C_SPACE).writeUtf8(key).writeByte(Symbol.C_LF);
         journalWriter.flush();
 
@@ -456,9 +576,13 @@ public final class DiskLruCache implements Closeable, Flushable {
         }
     }
 
-    public synchronized long size() throws IOException {
-        initialize();
-        return size;
+    public long size() throws IOException {
+        if (initializing) return 0;
+
+        synchronized (this) {
+            initialize();
+            return size;
+        }
     }
 
     synchronized void completeEdit(Editor editor, boolean success) throws IOException {
@@ -507,6 +631,7 @@ public final class DiskLruCache implements Closeable, Flushable {
             journalWriter.writeByte(Symbol.C_LF);
             if (success) {
                 entry.sequenceNumber = nextSequenceNumber++;
+                editor.committedSequenceNumber = entry.sequenceNumber;
             }
         } else {
             lruEntries.remove(entry.key);
@@ -514,13 +639,32 @@ public final class DiskLruCache implements Closeable, Flushable {
             journalWriter.writeUtf8(entry.key);
             journalWriter.writeByte(Symbol.C_LF);
         }
-        journalWriter.flush();
+        flushJournal();
 
         if (size > maxSize || journalRebuildRequired()) {
             executor.execute(cleanupRunnable);
         }
     }
 
+    /**
+     * 刷新日志,启用批量提交时只登记待刷新的记录
+     *
+     * @throws IOException 异常
+     */
+    private void flushJournal() throws IOException {
+        if (journalFlushMillis <= 0) {
+            journalWriter.flush();
+            return;
+        }
+        if (++pendingJournalRecords >= journalBatchSize) {
+            pendingJournalRecords = 0;
+            executor.execute(journalFlushRunnable);
+        } else if (!journalFlushScheduled) {
+            journalFlushScheduled = true;
+            journalScheduler.schedule(journalFlushRunnable, journalFlushMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
     /**
      * 只有当日志的大小减半并至少减少2000个ops时，我们才会重建日志
      *
@@ -532,6 +676,23 @@ public final class DiskLruCache implements Closeable, Flushable {
                 && redundantOpCount >= lruEntries.size();
     }
 
+    /**
+     * 在快照仍是条目当前版本时执行操作,检查与操作都在缓存锁内完成,期间条目不会被替换或删除
+     *
+     * @param key            缓存key
+     * @param sequenceNumber 快照的序列号
+     * @param action         操作
+     * @return 已执行时返回true
+     */
+    synchronized boolean ifCurrent(String key, long sequenceNumber, Runnable action) {
+        Entry entry = lruEntries.get(key);
+        if (entry == null || !entry.readable || entry.sequenceNumber != sequenceNumber) {
+            return false;
+        }
+        action.run();
+        return true;
+    }
+
     /**
      * 如果{@code key}存在并且可以删除，则删除它。如果当前正在编辑
      * {@code key}的条目，那么编辑将正常完成，但是它的值不会被存储
@@ -540,7 +701,41 @@ public final class DiskLruCache implements Closeable, Flushable {
      * @return 如果一个条目被删除，则为真
      * @throws IOException 异常
      */
-    public synchronized boolean remove(String key) throws IOException {
+    public boolean remove(String key) throws IOException {
+        if (initializing) {
+            validateKey(key);
+            pendingRemovals.add(key);
+            if (initializing) {
+                return false;
+            }
+            // 初始化已在登记后结束,登记的删除可能未被执行
+            synchronized (this) {
+                applyPendingRemovals();
+            }
+            return false;
+        }
+
+        synchronized (this) {
+            return remove0(key);
+        }
+    }
+
+    /**
+     * 执行后台初始化期间登记的删除,在初始化标志清除后调用,不会遗漏登记的key
+     *
+     * @throws IOException 异常
+     */
+    private void applyPendingRemovals() throws IOException {
+        assert Thread.holdsLock(this);
+
+        for (Iterator<String> i = pendingRemovals.iterator(); i.hasNext(); ) {
+            String key = i.next();
+            i.remove();
+            remove0(key);
+        }
+    }
+
+    private boolean remove0(String key) throws IOException {
         initialize();
 
         checkNotClosed();
@@ -585,12 +780,16 @@ public final class DiskLruCache implements Closeable, Flushable {
     }
 
     @Override
-    public synchronized void flush() throws IOException {
-        if (!initialized) return;
+    public void flush() throws IOException {
+        if (initializing) return;
 
-        checkNotClosed();
-        trimToSize();
-        journalWriter.flush();
+        synchronized (this) {
+            if (!initialized) return;
+
+            checkNotClosed();
+            trimToSize();
+            journalWriter.flush();
+        }
     }
 
     @Override
@@ -744,6 +943,10 @@ public final class DiskLruCache implements Closeable, Flushable {
             return DiskLruCache.this.edit(key, sequenceNumber);
         }
 
+        long sequenceNumber() {
+            return sequenceNumber;
+        }
+
         public Source getSource(int index) {
             return sources[index];
         }
@@ -763,6 +966,10 @@ public final class DiskLruCache implements Closeable, Flushable {
         final Entry entry;
         final boolean[] written;
         private boolean done;
+        /**
+         * 提交成功后条目的序列号,未提交或提交未生效时为{@link #ANY_SEQUENCE_NUMBER}
+         */
+        private long committedSequenceNumber = ANY_SEQUENCE_NUMBER;
 
         Editor(Entry entry) {
             this.entry = entry;
@@ -839,6 +1046,15 @@ public final class DiskLruCache implements Closeable, Flushable {
             }
         }
 
+        /**
+         * @return 提交生效后条目的序列号,否则为{@link #ANY_SEQUENCE_NUMBER}
+         */
+        long committedSequenceNumber() {
+            synchronized (DiskLruCache.this) {
+                return committedSequenceNumber;
+            }
+        }
+
         /**
          * 中止这个编辑。这释放了编辑锁，因此可以在同一个键上启动另一个编辑
          *
@@ -0,0 +1,397 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.http.metric;
+
+import org.aoju.bus.http.DnsX;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带缓存的DNS解析,包装任意{@link DnsX}
+ * 解析结果按记录TTL缓存(限制在最小与最大值之间),失败结果短暂缓存;
+ * 同一主机的并发查询合并为一次,热点主机在过期前于后台刷新,
+ * 使建立连接时无需等待DNS查询
+ * <p>
+ * 委托对象为{@link DnsOverHttps}时使用应答中的TTL,否则使用默认TTL
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public final class CachedDns implements DnsX {
+
+    private static final Executor DEFAULT_EXECUTOR = defaultExecutor();
+
+    private final DnsX delegate;
+    private final long minTtlNanos;
+    private final long maxTtlNanos;
+    private final long defaultTtlNanos;
+    private final long negativeTtlNanos;
+    private final double refreshAhead;
+    private final int refreshHits;
+    private final int maxSize;
+    private final Executor executor;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Entry>> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder refreshCount = new LongAdder();
+
+    CachedDns(Builder builder) {
+        if (builder.delegate == null) {
+            throw new NullPointerException("delegate == null");
+        }
+        if (builder.minTtl > builder.maxTtl) {
+            throw new IllegalArgumentException("minTtl > maxTtl");
+        }
+        this.delegate = builder.delegate;
+        this.minTtlNanos = TimeUnit.SECONDS.toNanos(builder.minTtl);
+        this.maxTtlNanos = TimeUnit.SECONDS.toNanos(builder.maxTtl);
+        this.defaultTtlNanos = TimeUnit.SECONDS.toNanos(builder.defaultTtl);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(builder.negativeTtl);
+        this.refreshAhead = builder.refreshAhead;
+        this.refreshHits = builder.refreshHits;
+        this.maxSize = builder.maxSize;
+        this.executor = builder.executor != null ? builder.executor : DEFAULT_EXECUTOR;
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        if (hostname == null) throw new UnknownHostException("hostname == null");
+
+        Entry entry = entries.get(hostname);
+        long now = System.nanoTime();
+        if (entry != null && now - entry.expireAt < 0) {
+            hitCount.increment();
+            if (entry.failure == null) {
+                entry.hits.increment();
+                if (now - entry.refreshAt >= 0
+                        && entry.hits.sum() >= refreshHits
+                        && entry.refreshing.compareAndSet(false, true)) {
+                    refresh(hostname, entry);
+                }
+            }
+            return entry.get(hostname);
+        }
+
+        missCount.increment();
+        return load(hostname).get(hostname);
+    }
+
+    /**
+     * 清除全部缓存
+     */
+    public void evictAll() {
+        entries.clear();
+    }
+
+    public DnsX delegate() {
+        return delegate;
+    }
+
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    public long refreshCount() {
+        return refreshCount.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 合并同一主机的并发查询
+     */
+    private Entry load(String hostname) throws UnknownHostException {
+        CompletableFuture<Entry> flight = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = flights.putIfAbsent(hostname, flight);
+        if (existing != null) {
+            try {
+                return existing.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                UnknownHostException unknownHostException = new UnknownHostException(hostname);
+                unknownHostException.initCause(e);
+                throw unknownHostException;
+            } catch (ExecutionException e) {
+                throw rethrow(hostname, e.getCause());
+            }
+        }
+
+        try {
+            // 其他线程可能刚完成查询
+            Entry entry = entries.get(hostname);
+            if (entry == null || System.nanoTime() - entry.expireAt >= 0) {
+                entry = resolve(hostname);
+            }
+            flight.complete(entry);
+            return entry;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(hostname, flight);
+        }
+    }
+
+    /**
+     * 后台刷新线程池,队列无界时线程数只会增长到核心线程数,
+     * 因此核心线程数即为刷新并发度,空闲后允许回收
+     *
+     * @return 线程池
+     */
+    private static Executor defaultExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), org.aoju.bus.http.Builder.threadFactory("Httpd CachedDns", true));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private void refresh(String hostname, Entry entry) {
+        try {
+            executor.execute(() -> {
+                try {
+                    Entry fresh = query(hostname);
+                    if (fresh.failure == null) {
+                        refreshCount.increment();
+                        put(hostname, fresh);
+                    }
+                } finally {
+                    // 刷新失败时保留原有结果直至过期
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private Entry resolve(String hostname) {
+        Entry entry = query(hostname);
+        put(hostname, entry);
+        return entry;
+    }
+
+    private Entry query(String hostname) {
+        long now = System.nanoTime();
+        try {
+            List<InetAddress> addresses;
+            long ttlNanos;
+            if (delegate instanceof DnsOverHttps) {
+                AtomicLong ttl = new AtomicLong(Long.MAX_VALUE);
+                addresses = ((DnsOverHttps) delegate).lookup(hostname, ttl);
+                ttlNanos = ttl.get() == Long.MAX_VALUE ? defaultTtlNanos : TimeUnit.SECONDS.toNanos(ttl.get());
+            } else {
+                addresses = delegate.lookup(hostname);
+                ttlNanos = defaultTtlNanos;
+            }
+            ttlNanos = Math.max(minTtlNanos, Math.min(maxTtlNanos, ttlNanos));
+            long refreshAt = now + (long) (ttlNanos * refreshAhead);
+            return new Entry(Collections.unmodifiableList(addresses), null, now + ttlNanos, refreshAt);
+        } catch (UnknownHostException e) {
+            return new Entry(null, e, now + negativeTtlNanos, now + negativeTtlNanos);
+        }
+    }
+
+    private void put(String hostname, Entry entry) {
+        if (entry.failure != null && negativeTtlNanos <= 0) {
+            entries.remove(hostname);
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(hostname)) {
+            trim();
+        }
+        entries.put(hostname, entry);
+    }
+
+    /**
+     * 移除过期记录,仍超出容量时任意移除一条
+     */
+    private void trim() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.expireAt >= 0);
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() >= maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static UnknownHostException rethrow(String hostname, Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        UnknownHostException unknownHostException = new UnknownHostException(hostname);
+        unknownHostException.initCause(cause);
+        return unknownHostException;
+    }
+
+    private static final class Entry {
+
+        final List<InetAddress> addresses;
+        final UnknownHostException failure;
+        final long expireAt;
+        final long refreshAt;
+        final LongAdder hits = new LongAdder();
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(List<InetAddress> addresses, UnknownHostException failure, long expireAt, long refreshAt) {
+            this.addresses = addresses;
+            this.failure = failure;
+            this.expireAt = expireAt;
+            this.refreshAt = refreshAt;
+        }
+
+        List<InetAddress> get(String hostname) throws UnknownHostException {
+            if (failure != null) {
+                // 每次抛出新的异常,保留调用方的堆栈
+                UnknownHostException unknownHostException = new UnknownHostException(failure.getMessage());
+                unknownHostException.initCause(failure);
+                throw unknownHostException;
+            }
+            return addresses;
+        }
+    }
+
+    public static final class Builder {
+
+        DnsX delegate = DnsX.SYSTEM;
+        long minTtl = 5;
+        long maxTtl = TimeUnit.HOURS.toSeconds(1);
+        long defaultTtl = 60;
+        long negativeTtl = 5;
+        double refreshAhead = 0.8;
+        int refreshHits = 2;
+        int maxSize = 1024;
+        Executor executor;
+
+        public Builder() {
+        }
+
+        public CachedDns build() {
+            return new CachedDns(this);
+        }
+
+        public Builder delegate(DnsX delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * @param minTtl 记录TTL的下限(秒)
+         * @return this
+         */
+        public Builder minTtl(long minTtl) {
+            this.minTtl = minTtl;
+            return this;
+        }
+
+        /**
+         * @param maxTtl 记录TTL的上限(秒)
+         * @return this
+         */
+        public Builder maxTtl(long maxTtl) {
+            this.maxTtl = maxTtl;
+            return this;
+        }
+
+        /**
+         * @param defaultTtl 委托对象无法提供TTL时使用的TTL(秒)
+         * @return this
+         */
+        public Builder defaultTtl(long defaultTtl) {
+            this.defaultTtl = defaultTtl;
+            return this;
+        }
+
+        /**
+         * @param negativeTtl 解析失败结果的缓存时间(秒), 0表示不缓存
+         * @return this
+         */
+        public Builder negativeTtl(long negativeTtl) {
+            this.negativeTtl = negativeTtl;
+            return this;
+        }
+
+        /**
+         * @param refreshAhead 经过TTL的该比例后开始后台刷新, 取值(0, 1]
+         * @return this
+         */
+        public Builder refreshAhead(double refreshAhead) {
+            if (refreshAhead <= 0 || refreshAhead > 1) {
+                throw new IllegalArgumentException("refreshAhead must be in (0, 1]: " + refreshAhead);
+            }
+            this.refreshAhead = refreshAhead;
+            return this;
+        }
+
+        /**
+         * @param refreshHits 命中次数达到该值的主机才会后台刷新
+         * @return this
+         */
+        public Builder refreshHits(int refreshHits) {
+            this.refreshHits = refreshHits;
+            return this;
+        }
+
+        public Builder maxSize(int maxSize) {
+            if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+    }
+
+}
@@ -28,17 +28,19 @@ import org.aoju.bus.http.Builder;
 import org.aoju.bus.http.NewCall;
 import org.aoju.bus.http.RealCall;
 import org.aoju.bus.http.RealCall.AsyncCall;
+import org.aoju.bus.logger.Logger;
 
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 关于何时执行异步请求的策略
  * 每个dispatcher使用一个{@link ExecutorService}在内部运行调用。
  * 如果您提供自己的执行程序，它应该能够并发地运行{@linkplain #getMaxRequests 配置的最大调用数}
+ * <p>
+ * 并发数限制通过原子计数实现,调用的提交与完成无需竞争同一把锁;
+ * 执行程序可通过{@link ExecutorStrategy}指定,运行时支持时可使用虚拟线程
  *
  * @author Kimi Liu
  * @version 5.8.1
@@ -49,18 +51,31 @@ public final class Dispatcher {
     /**
      * 准备异步调用的顺序，他们将被运行
      */
-    private final Deque<AsyncCall> readyAsyncCalls = new ArrayDeque<>();
+    private final Deque<AsyncCall> readyAsyncCalls = new ConcurrentLinkedDeque<>();
     /**
      * 运行异步调用。包括尚未结束的已取消调用
      */
-    private final Deque<AsyncCall> runningAsyncCalls = new ArrayDeque<>();
+    private final Set<AsyncCall> runningAsyncCalls = ConcurrentHashMap.newKeySet();
     /**
      * 运行同步调用。包括尚未结束的已取消调用
      */
-    private final Deque<RealCall> runningSyncCalls = new ArrayDeque<>();
-    private int maxRequests = 64;
-    private int maxRequestsPerHost = 5;
-    private Runnable idleCallback;
+    private final Set<RealCall> runningSyncCalls = ConcurrentHashMap.newKeySet();
+    /**
+     * 已获准运行的异步调用数
+     */
+    private final AtomicInteger runningAsyncCount = new AtomicInteger();
+    /**
+     * 每个主机已获准运行的异步调用数
+     */
+    private final ConcurrentMap<String, AtomicInteger> runningHostCounts = new ConcurrentHashMap<>();
+    /**
+     * 待处理的提升请求数,非零时表示已有线程在执行提升,其余线程只登记请求由该线程补跑
+     */
+    private final AtomicInteger promotionRequests = new AtomicInteger();
+    private final ExecutorStrategy executorStrategy;
+    private volatile int maxRequests = 64;
+    private volatile int maxRequestsPerHost = 5;
+    private volatile Runnable idleCallback;
     /**
      * 执行调用
      */
@@ -68,20 +83,28 @@ public final class Dispatcher {
 
     public Dispatcher(ExecutorService executorService) {
         this.executorService = executorService;
+        this.executorStrategy = ExecutorStrategy.PLATFORM;
     }
 
     public Dispatcher() {
+        this(ExecutorStrategy.PLATFORM);
+    }
+
+    /**
+     * @param executorStrategy 执行程序的创建策略
+     */
+    public Dispatcher(ExecutorStrategy executorStrategy) {
+        this.executorStrategy = executorStrategy;
     }
 
     public synchronized ExecutorService executorService() {
         if (executorService == null) {
-            executorService = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
-                    new SynchronousQueue<>(), Builder.threadFactory("Httpd Dispatcher", false));
+            executorService = executorStrategy.create();
         }
         return executorService;
     }
 
-    public synchronized int getMaxRequests() {
+    public int getMaxRequests() {
         return maxRequests;
     }
 
@@ -95,13 +118,11 @@ public final class Dispatcher {
         if (maxRequests < 1) {
             throw new IllegalArgumentException("max < 1: " + maxRequests);
         }
-        synchronized (this) {
-            this.maxRequests = maxRequests;
-        }
+        this.maxRequests = maxRequests;
         promoteAndExecute();
     }
 
-    public synchronized int getMaxRequestsPerHost() {
+    public int getMaxRequestsPerHost() {
         return maxRequestsPerHost;
     }
 
@@ -116,9 +137,7 @@ public final class Dispatcher {
         if (maxRequestsPerHost < 1) {
             throw new IllegalArgumentException("max < 1: " + maxRequestsPerHost);
         }
-        synchronized (this) {
-            this.maxRequestsPerHost = maxRequestsPerHost;
-        }
+        this.maxRequestsPerHost = maxRequestsPerHost;
         promoteAndExecute();
     }
 
@@ -128,14 +147,12 @@ public final class Dispatcher {
      *
      * @param idleCallback 回调
      */
-    public synchronized void setIdleCallback(Runnable idleCallback) {
+    public void setIdleCallback(Runnable idleCallback) {
         this.idleCallback = idleCallback;
     }
 
     public void enqueue(AsyncCall call) {
-        synchronized (this) {
-            readyAsyncCalls.add(call);
-        }
+        readyAsyncCalls.add(call);
         promoteAndExecute();
     }
 
@@ -144,7 +161,7 @@ public final class Dispatcher {
      * {@linkplain NewCall#execute()}和异步
      * 执行的{@linkplain NewCall#enqueue}。
      */
-    public synchronized void cancelAll() {
+    public void cancelAll() {
         for (AsyncCall call : readyAsyncCalls) {
             call.get().cancel();
         }
@@ -161,67 +178,111 @@ public final class Dispatcher {
     /**
      * 将符合条件的调用从{@link #readyAsyncCalls}提升到{@link #runningAsyncCalls}，
      * 并在executor服务上运行它们。必须不与同步调用，因为执行调用可以调用到用户代码
+     * 同一时刻只有一个线程执行提升,其间到达的提升请求(入队、调用结束、调整上限)由该线程再跑一轮,
+     * 避免名额释放后无人提升队列中的调用
      *
      * @return 如果调度程序当前正在运行调用，则为true
      */
     private boolean promoteAndExecute() {
-        assert (!Thread.holdsLock(this));
+        if (promotionRequests.getAndIncrement() != 0) {
+            return runningCallsCount() > 0;
+        }
 
-        List<AsyncCall> executableCalls = new ArrayList<>();
-        boolean isRunning;
-        synchronized (this) {
+        List<AsyncCall> executableCalls = null;
+        int requests = 1;
+        do {
             for (Iterator<AsyncCall> i = readyAsyncCalls.iterator(); i.hasNext(); ) {
                 AsyncCall asyncCall = i.next();
 
-                if (runningAsyncCalls.size() >= maxRequests) break; // Max capacity.
-                if (runningCallsForHost(asyncCall) >= maxRequestsPerHost) continue; // Host max capacity.
+                if (!tryAcquire(runningAsyncCount, maxRequests)) break; // Max capacity.
+                if (!asyncCall.get().forWebSocket && !tryAcquireHost(asyncCall.host())) {
+                    runningAsyncCount.decrementAndGet();
+                    continue; // Host max capacity.
+                }
 
                 i.remove();
-                executableCalls.add(asyncCall);
                 runningAsyncCalls.add(asyncCall);
+                if (executableCalls == null) {
+                    executableCalls = new ArrayList<>();
+                }
+                executableCalls.add(asyncCall);
+            }
+        } while ((requests = promotionRequests.addAndGet(-requests)) != 0);
+
+        if (executableCalls != null) {
+            ExecutorService executorService = executorService();
+            for (int i = 0, size = executableCalls.size(); i < size; i++) {
+                executableCalls.get(i).executeOn(executorService);
             }
-            isRunning = runningCallsCount() > 0;
         }
 
-        for (int i = 0, size = executableCalls.size(); i < size; i++) {
-            AsyncCall asyncCall = executableCalls.get(i);
-            asyncCall.executeOn(executorService());
+        return runningCallsCount() > 0;
+    }
+
+    private static boolean tryAcquire(AtomicInteger counter, int max) {
+        for (; ; ) {
+            int current = counter.get();
+            if (current >= max) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
         }
+    }
 
-        return isRunning;
+    /**
+     * 为主机占用一个运行名额,计数的创建与递增在同一映射操作内完成
+     *
+     * @param host 主机名
+     * @return 未超过每个主机上限并占用成功时为true
+     */
+    private boolean tryAcquireHost(String host) {
+        int max = maxRequestsPerHost;
+        boolean[] acquired = new boolean[1];
+        runningHostCounts.compute(host, (key, count) -> {
+            if (count == null) {
+                count = new AtomicInteger();
+            }
+            if (count.get() < max) {
+                count.incrementAndGet();
+                acquired[0] = true;
+            }
+            return count.get() == 0 ? null : count;
+        });
+        return acquired[0];
     }
 
     /**
+     * 归还调用占用的运行名额,主机计数归零时移除其条目,避免访问过的主机无限累积
+     *
      * @param call 回调信息
-     * @return 与{@code call}共享主机的运行调用的数量
      */
-    private int runningCallsForHost(AsyncCall call) {
-        int result = 0;
-        for (AsyncCall c : runningAsyncCalls) {
-            if (c.get().forWebSocket) continue;
-            if (c.host().equals(call.host())) result++;
+    private void release(AsyncCall call) {
+        if (!call.get().forWebSocket) {
+            runningHostCounts.computeIfPresent(call.host(),
+                    (key, count) -> count.decrementAndGet() <= 0 ? null : count);
         }
-        return result;
+        runningAsyncCount.decrementAndGet();
     }
 
-    public synchronized void executed(RealCall call) {
+    public void executed(RealCall call) {
         runningSyncCalls.add(call);
     }
 
     public void finished(AsyncCall call) {
-        finished(runningAsyncCalls, call);
+        if (!runningAsyncCalls.remove(call)) throw new AssertionError("Call wasn't in-flight!");
+        release(call);
+        finished();
     }
 
     public void finished(RealCall call) {
-        finished(runningSyncCalls, call);
+        if (!runningSyncCalls.remove(call)) throw new AssertionError("Call wasn't in-flight!");
+        finished();
     }
 
-    private <T> void finished(Deque<T> calls, T call) {
-        Runnable idleCallback;
-        synchronized (this) {
-            if (!calls.remove(call)) throw new AssertionError("Call wasn't in-flight!");
-            idleCallback = this.idleCallback;
-        }
+    private void finished() {
+        Runnable idleCallback = this.idleCallback;
 
         boolean isRunning = promoteAndExecute();
 
@@ -230,7 +291,7 @@ public final class Dispatcher {
         }
     }
 
-    public synchronized List<NewCall> queuedCalls() {
+    public List<NewCall> queuedCalls() {
         List<NewCall> result = new ArrayList<>();
         for (AsyncCall asyncCall : readyAsyncCalls) {
             result.add(asyncCall.get());
@@ -238,7 +299,7 @@ public final class Dispatcher {
         return Collections.unmodifiableList(result);
     }
 
-    public synchronized List<NewCall> runningCalls() {
+    public List<NewCall> runningCalls() {
         List<NewCall> result = new ArrayList<>();
         result.addAll(runningSyncCalls);
         for (AsyncCall asyncCall : runningAsyncCalls) {
@@ -247,12 +308,41 @@ public final class Dispatcher {
         return Collections.unmodifiableList(result);
     }
 
-    public synchronized int queuedCallsCount() {
+    public int queuedCallsCount() {
         return readyAsyncCalls.size();
     }
 
-    public synchronized int runningCallsCount() {
+    public int runningCallsCount() {
         return runningAsyncCalls.size() + runningSyncCalls.size();
     }
 
+    /**
+     * 执行程序的创建策略
+     */
+    public interface ExecutorStrategy {
+
+        /**
+         * 平台线程,空闲60秒后回收
+         */
+        ExecutorStrategy PLATFORM = () -> new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), Builder.threadFactory("Httpd Dispatcher", false));
+
+        /**
+         * 每个调用一个虚拟线程,运行时不支持虚拟线程(JDK 21之前)时退化为{@link #PLATFORM}
+         */
+        ExecutorStrategy VIRTUAL = () -> {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                Logger.debug("Virtual threads are not supported, falling back to platform threads");
+                return PLATFORM.create();
+            }
+        };
+
+        /**
+         * @return 新的执行程序
+         */
+        ExecutorService create();
+    }
+
 }
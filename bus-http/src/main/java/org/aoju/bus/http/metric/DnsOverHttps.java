@@ -42,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * DNS over HTTPS实施
@@ -122,6 +123,20 @@ public class DnsOverHttps implements DnsX {
 
     public static List<InetAddress> decodeAnswers(String hostname, ByteString byteString)
             throws Exception {
+        return decodeAnswers(hostname, byteString, null);
+    }
+
+    /**
+     * 解析应答记录
+     *
+     * @param hostname   主机名
+     * @param byteString 应答报文
+     * @param ttl        用于记录应答中最小的TTL(秒), 可为null
+     * @return ip地址信息
+     * @throws Exception 异常
+     */
+    static List<InetAddress> decodeAnswers(String hostname, ByteString byteString, AtomicLong ttl)
+            throws Exception {
         List<InetAddress> result = new ArrayList<>();
 
         Buffer buf = new Buffer();
@@ -157,9 +172,13 @@ public class DnsOverHttps implements DnsX {
 
             int type = buf.readShort() & 0xffff;
             buf.readShort();
+            final long recordTtl = buf.readInt() & 0xffffffffL;
             final int length = buf.readShort() & 0xffff;
 
             if (type == TYPE_A || type == TYPE_AAAA) {
+                if (ttl != null) {
+                    ttl.accumulateAndGet(recordTtl, Math::min);
+                }
                 byte[] bytes = new byte[length];
                 buf.read(bytes);
                 result.add(InetAddress.getByAddress(bytes));
@@ -257,6 +276,18 @@ public class DnsOverHttps implements DnsX {
 
     @Override
     public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        return lookup(hostname, null);
+    }
+
+    /**
+     * 查询并记录应答中最小的TTL(秒)
+     *
+     * @param hostname 主机名
+     * @param ttl      TTL记录, 可为null
+     * @return ip地址信息
+     * @throws UnknownHostException 异常
+     */
+    List<InetAddress> lookup(String hostname, AtomicLong ttl) throws UnknownHostException {
         if (!resolvePrivateAddresses || !resolvePublicAddresses) {
             boolean privateHost = isPrivateHost(hostname);
 
@@ -269,21 +300,21 @@ public class DnsOverHttps implements DnsX {
             }
         }
 
-        return lookupHttps(hostname);
+        return lookupHttps(hostname, ttl);
     }
 
-    private List<InetAddress> lookupHttps(String hostname) throws UnknownHostException {
+    private List<InetAddress> lookupHttps(String hostname, AtomicLong ttl) throws UnknownHostException {
         List<NewCall> networkRequests = new ArrayList<>(2);
         List<Exception> failures = new ArrayList<>(2);
         List<InetAddress> results = new ArrayList<>(5);
 
-        buildRequest(hostname, networkRequests, results, failures, TYPE_A);
+        buildRequest(hostname, networkRequests, results, failures, TYPE_A, ttl);
 
         if (includeIPv6) {
-            buildRequest(hostname, networkRequests, results, failures, TYPE_AAAA);
+            buildRequest(hostname, networkRequests, results, failures, TYPE_AAAA, ttl);
         }
 
-        executeRequests(hostname, networkRequests, results, failures);
+        executeRequests(hostname, networkRequests, results, failures, ttl);
 
         if (!results.isEmpty()) {
             return results;
@@ -293,19 +324,20 @@ public class DnsOverHttps implements DnsX {
     }
 
     private void buildRequest(String hostname, List<NewCall> networkRequests, List<InetAddress> results,
-                              List<Exception> failures, int type) {
+                              List<Exception> failures, int type, AtomicLong ttl) {
         Request request = buildRequest(hostname, type);
         Response response = getCacheOnlyResponse(request);
 
         if (response != null) {
-            processResponse(response, hostname, results, failures);
+            processResponse(response, hostname, results, failures, ttl);
         } else {
             networkRequests.add(client.newCall(request));
         }
     }
 
     private void executeRequests(final String hostname, List<NewCall> networkRequests,
-                                 final List<InetAddress> responses, final List<Exception> failures) {
+                                 final List<InetAddress> responses, final List<Exception> failures,
+                                 final AtomicLong ttl) {
         final CountDownLatch latch = new CountDownLatch(networkRequests.size());
 
         for (NewCall call : networkRequests) {
@@ -320,7 +352,7 @@ public class DnsOverHttps implements DnsX {
 
                 @Override
                 public void onResponse(NewCall call, Response response) {
-                    processResponse(response, hostname, responses, failures);
+                    processResponse(response, hostname, responses, failures, ttl);
                     latch.countDown();
                 }
             });
@@ -334,9 +366,9 @@ public class DnsOverHttps implements DnsX {
     }
 
     private void processResponse(Response response, String hostname, List<InetAddress> results,
-                                 List<Exception> failures) {
+                                 List<Exception> failures, AtomicLong ttl) {
         try {
-            List<InetAddress> addresses = readResponse(hostname, response);
+            List<InetAddress> addresses = readResponse(hostname, response, ttl);
             synchronized (results) {
                 results.addAll(addresses);
             }
@@ -386,7 +418,7 @@ public class DnsOverHttps implements DnsX {
         return null;
     }
 
-    private List<InetAddress> readResponse(String hostname, Response response) throws Exception {
+    private List<InetAddress> readResponse(String hostname, Response response, AtomicLong ttl) throws Exception {
         if (response.cacheResponse() == null && response.protocol() != Protocol.HTTP_2) {
             Logger.debug("Incorrect protocol: " + response.protocol(), null);
         }
@@ -408,7 +440,7 @@ public class DnsOverHttps implements DnsX {
 
             ByteString responseBytes = body.source().readByteString();
 
-            return decodeAnswers(hostname, responseBytes);
+            return decodeAnswers(hostname, responseBytes, ttl);
         } finally {
             response.close();
         }
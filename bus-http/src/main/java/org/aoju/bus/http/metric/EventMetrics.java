@@ -0,0 +1,355 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.http.metric;
+
+import org.aoju.bus.http.*;
+import org.aoju.bus.http.accord.Connection;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于{@link EventListener}的请求指标统计
+ * 按主机记录各阶段耗时直方图、连接复用与新建次数、收发字节数,
+ * 可通过{@link #snapshot()}定期采集;单独统计的主机数有上限,
+ * 超出后新主机的指标合并到{@link #OTHER_HOSTS}下,避免访问大量主机时无限增长
+ * <pre>{@code
+ *   EventMetrics metrics = new EventMetrics();
+ *   Httpd httpd = new Httpd.Builder().eventListenerFactory(metrics).build();
+ *   Map<String, EventMetrics.HostSnapshot> snapshot = metrics.snapshot();
+ * }</pre>
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public final class EventMetrics implements EventListener.Factory {
+
+    /**
+     * 超出主机数上限后合并统计使用的键
+     */
+    public static final String OTHER_HOSTS = "*";
+
+    private final ConcurrentMap<String, HostMetrics> hosts = new ConcurrentHashMap<>();
+    private final int maxHosts;
+
+    public EventMetrics() {
+        this(1024);
+    }
+
+    /**
+     * @param maxHosts 单独统计的最大主机数,并发创建时可能略微超出
+     */
+    public EventMetrics(int maxHosts) {
+        if (maxHosts < 1) {
+            throw new IllegalArgumentException("maxHosts < 1: " + maxHosts);
+        }
+        this.maxHosts = maxHosts;
+    }
+
+    @Override
+    public EventListener create(NewCall call) {
+        String host = call.request().url().host();
+        HostMetrics metrics = hosts.get(host);
+        if (metrics == null) {
+            if (hosts.size() >= maxHosts) {
+                host = OTHER_HOSTS;
+            }
+            metrics = hosts.computeIfAbsent(host, key -> new HostMetrics());
+        }
+        return new CallListener(metrics);
+    }
+
+    /**
+     * 返回所有主机的指标快照
+     *
+     * @return 主机与指标快照
+     */
+    public Map<String, HostSnapshot> snapshot() {
+        Map<String, HostSnapshot> result = new TreeMap<>();
+        for (Map.Entry<String, HostMetrics> entry : hosts.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * 清除全部指标,同时释放已达上限的主机名额
+     */
+    public void reset() {
+        hosts.clear();
+    }
+
+    /**
+     * 请求阶段
+     */
+    public enum Phase {
+        /**
+         * 整个调用
+         */
+        CALL,
+        DNS,
+        CONNECT,
+        SECURE_CONNECT,
+        REQUEST_HEADERS,
+        REQUEST_BODY,
+        RESPONSE_HEADERS,
+        RESPONSE_BODY
+    }
+
+    private static final class HostMetrics {
+
+        final Histogram[] histograms = new Histogram[Phase.values().length];
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder connectionsNew = new LongAdder();
+        final LongAdder connectionsReused = new LongAdder();
+        final LongAdder bytesSent = new LongAdder();
+        final LongAdder bytesReceived = new LongAdder();
+
+        HostMetrics() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new Histogram();
+            }
+        }
+
+        void record(Phase phase, long startNanos) {
+            if (startNanos != 0) {
+                histograms[phase.ordinal()].record(System.nanoTime() - startNanos);
+            }
+        }
+
+        HostSnapshot snapshot() {
+            Map<Phase, Histogram.Snapshot> phases = new EnumMap<>(Phase.class);
+            for (Phase phase : Phase.values()) {
+                phases.put(phase, histograms[phase.ordinal()].snapshot());
+            }
+            return new HostSnapshot(phases, calls.sum(), failures.sum(), connectionsNew.sum(),
+                    connectionsReused.sum(), bytesSent.sum(), bytesReceived.sum());
+        }
+    }
+
+    /**
+     * 单个调用的监听器,只记录开始时间,结束时写入主机指标
+     */
+    private static final class CallListener extends EventListener {
+
+        private final HostMetrics metrics;
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long requestHeadersStart;
+        private long requestBodyStart;
+        private long responseHeadersStart;
+        private long responseBodyStart;
+        private boolean connected;
+
+        CallListener(HostMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void callStart(NewCall call) {
+            callStart = System.nanoTime();
+            metrics.calls.increment();
+        }
+
+        @Override
+        public void dnsStart(NewCall call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(NewCall call, String domainName, List<InetAddress> inetAddressList) {
+            metrics.record(Phase.DNS, dnsStart);
+        }
+
+        @Override
+        public void connectStart(NewCall call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(NewCall call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(NewCall call, Handshake handshake) {
+            metrics.record(Phase.SECURE_CONNECT, secureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(NewCall call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            metrics.record(Phase.CONNECT, connectStart);
+            connected = true;
+        }
+
+        @Override
+        public void connectionAcquired(NewCall call, Connection connection) {
+            if (connected) {
+                metrics.connectionsNew.increment();
+            } else {
+                metrics.connectionsReused.increment();
+            }
+            connected = false;
+        }
+
+        @Override
+        public void requestHeadersStart(NewCall call) {
+            requestHeadersStart = System.nanoTime();
+        }
+
+        @Override
+        public void requestHeadersEnd(NewCall call, Request request) {
+            metrics.record(Phase.REQUEST_HEADERS, requestHeadersStart);
+        }
+
+        @Override
+        public void requestBodyStart(NewCall call) {
+            requestBodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyEnd(NewCall call, long byteCount) {
+            metrics.record(Phase.REQUEST_BODY, requestBodyStart);
+            metrics.bytesSent.add(byteCount);
+        }
+
+        @Override
+        public void responseHeadersStart(NewCall call) {
+            responseHeadersStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersEnd(NewCall call, Response response) {
+            metrics.record(Phase.RESPONSE_HEADERS, responseHeadersStart);
+        }
+
+        @Override
+        public void responseBodyStart(NewCall call) {
+            responseBodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(NewCall call, long byteCount) {
+            metrics.record(Phase.RESPONSE_BODY, responseBodyStart);
+            metrics.bytesReceived.add(byteCount);
+        }
+
+        @Override
+        public void callEnd(NewCall call) {
+            metrics.record(Phase.CALL, callStart);
+        }
+
+        @Override
+        public void callFailed(NewCall call, IOException ioe) {
+            metrics.record(Phase.CALL, callStart);
+            metrics.failures.increment();
+        }
+    }
+
+    /**
+     * 单个主机的指标快照,耗时单位为微秒
+     */
+    public static final class HostSnapshot {
+
+        private final Map<Phase, Histogram.Snapshot> phases;
+        private final long calls;
+        private final long failures;
+        private final long connectionsNew;
+        private final long connectionsReused;
+        private final long bytesSent;
+        private final long bytesReceived;
+
+        HostSnapshot(Map<Phase, Histogram.Snapshot> phases, long calls, long failures, long connectionsNew,
+                     long connectionsReused, long bytesSent, long bytesReceived) {
+            this.phases = Collections.unmodifiableMap(phases);
+            this.calls = calls;
+            this.failures = failures;
+            this.connectionsNew = connectionsNew;
+            this.connectionsReused = connectionsReused;
+            this.bytesSent = bytesSent;
+            this.bytesReceived = bytesReceived;
+        }
+
+        public Histogram.Snapshot phase(Phase phase) {
+            return phases.get(phase);
+        }
+
+        public Map<Phase, Histogram.Snapshot> phases() {
+            return phases;
+        }
+
+        public long calls() {
+            return calls;
+        }
+
+        public long failures() {
+            return failures;
+        }
+
+        public long connectionsNew() {
+            return connectionsNew;
+        }
+
+        public long connectionsReused() {
+            return connectionsReused;
+        }
+
+        public long bytesSent() {
+            return bytesSent;
+        }
+
+        public long bytesReceived() {
+            return bytesReceived;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder()
+                    .append("calls=").append(calls)
+                    .append(", failures=").append(failures)
+                    .append(", connectionsNew=").append(connectionsNew)
+                    .append(", connectionsReused=").append(connectionsReused)
+                    .append(", bytesSent=").append(bytesSent)
+                    .append(", bytesReceived=").append(bytesReceived);
+            for (Map.Entry<Phase, Histogram.Snapshot> entry : phases.entrySet()) {
+                if (entry.getValue().count() > 0) {
+                    builder.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.http.metric;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 低开销的延迟直方图
+ * 以微秒为单位,采用对数分段、段内线性细分的桶(与HDR直方图相同的思路),
+ * 相对误差约为3%,记录时只需一次原子加法,无需加锁
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public final class Histogram {
+
+    /**
+     * 每个2的幂区间细分的桶数(2^5)
+     */
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    /**
+     * 最大可记录约2^36微秒(约19小时),更大的值计入最后一个桶
+     */
+    private static final int MAX_EXPONENT = 36;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    static int bucket(long micros) {
+        if (micros < SUB_COUNT) {
+            return (int) Math.max(0, micros);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * 返回桶的上界(微秒)
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        long sub = bucket % SUB_COUNT;
+        return ((SUB_COUNT + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时(纳秒)
+     */
+    public void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        buckets.incrementAndGet(bucket(micros));
+        sum.addAndGet(micros);
+        long current;
+        while (micros > (current = max.get()) && !max.compareAndSet(current, micros)) {
+            // 重试直到更新成功或已有更大的值
+        }
+    }
+
+    /**
+     * @return 当前数据的快照
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sum.get(), max.get());
+    }
+
+    /**
+     * 直方图快照,时间单位为微秒
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile 百分位,取值[0, 100]
+         * @return 对应的耗时上界(微秒)
+         */
+        public long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count
+                    + ", mean=" + Math.round(mean())
+                    + "us, p50=" + percentile(50)
+                    + "us, p99=" + percentile(99)
+                    + "us, max=" + max + "us";
+        }
+    }
+
+}
@@ -25,12 +25,16 @@
 package org.aoju.bus.http.metric.http;
 
 import org.aoju.bus.Version;
+import org.aoju.bus.core.io.BufferSource;
 import org.aoju.bus.core.io.GzipSource;
+import org.aoju.bus.core.io.InflaterSource;
+import org.aoju.bus.core.io.Source;
 import org.aoju.bus.core.lang.Header;
 import org.aoju.bus.core.lang.MediaType;
 import org.aoju.bus.core.lang.Symbol;
 import org.aoju.bus.core.utils.IoUtils;
 import org.aoju.bus.http.*;
+import org.aoju.bus.http.bodys.CompressedBody;
 import org.aoju.bus.http.bodys.RealResponseBody;
 import org.aoju.bus.http.bodys.RequestBody;
 import org.aoju.bus.http.metric.CookieJar;
@@ -38,6 +42,7 @@ import org.aoju.bus.http.metric.Interceptor;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.zip.Inflater;
 
 /**
  * 从应用程序代码连接到网络代码。首先，它从用户请求构建网络请求。
@@ -67,6 +72,13 @@ public final class BridgeInterceptor implements Interceptor {
                 requestBuilder.header(Header.CONTENT_TYPE, contentType.toString());
             }
 
+            if (body instanceof CompressedBody) {
+                String contentEncoding = ((CompressedBody) body).contentEncoding();
+                if (contentEncoding != null) {
+                    requestBuilder.header(Header.CONTENT_ENCODING, contentEncoding);
+                }
+            }
+
             long contentLength = body.contentLength();
             if (contentLength != -1) {
                 requestBuilder.header(Header.CONTENT_LENGTH, Long.toString(contentLength));
@@ -85,12 +97,12 @@ public final class BridgeInterceptor implements Interceptor {
             requestBuilder.header(Header.CONNECTION, Header.KEEP_ALIVE);
         }
 
-        // If we add an "Accept-Encoding: gzip" header field we're responsible for also decompressing
-        // the transfer stream.
-        boolean transparentGzip = false;
+        // If we add an "Accept-Encoding: gzip, deflate" header field we're responsible for also
+        // decompressing the transfer stream.
+        boolean transparentEncoding = false;
         if (userRequest.header(Header.ACCEPT_ENCODING) == null && userRequest.header("Range") == null) {
-            transparentGzip = true;
-            requestBuilder.header(Header.ACCEPT_ENCODING, "gzip");
+            transparentEncoding = true;
+            requestBuilder.header(Header.ACCEPT_ENCODING, "gzip, deflate");
         }
 
         List<Cookie> cookies = cookieJar.loadForRequest(userRequest.url());
@@ -109,10 +121,14 @@ public final class BridgeInterceptor implements Interceptor {
         Response.Builder responseBuilder = networkResponse.newBuilder()
                 .request(userRequest);
 
-        if (transparentGzip
-                && "gzip".equalsIgnoreCase(networkResponse.header(Header.CONTENT_ENCODING))
+        String contentEncoding = networkResponse.header(Header.CONTENT_ENCODING);
+        if (transparentEncoding
+                && ("gzip".equalsIgnoreCase(contentEncoding) || "deflate".equalsIgnoreCase(contentEncoding))
                 && HttpHeaders.hasBody(networkResponse)) {
-            GzipSource responseBody = new GzipSource(networkResponse.body().source());
+            BufferSource source = networkResponse.body().source();
+            Source responseBody = "gzip".equalsIgnoreCase(contentEncoding)
+                    ? new GzipSource(source)
+                    : new InflaterSource(source, new Inflater(!isZlibHeader(source)));
             Headers strippedHeaders = networkResponse.headers().newBuilder()
                     .removeAll(Header.CONTENT_ENCODING)
                     .removeAll(Header.CONTENT_LENGTH)
@@ -125,6 +141,23 @@ public final class BridgeInterceptor implements Interceptor {
         return responseBuilder.build();
     }
 
+    /**
+     * RFC 7230 规定deflate为zlib格式,但部分服务端直接发送原始deflate数据,
+     * 此处根据前两个字节判断是否带有zlib头
+     *
+     * @param source 响应体
+     * @return 带有zlib头时为true
+     * @throws IOException 异常
+     */
+    private boolean isZlibHeader(BufferSource source) throws IOException {
+        if (!source.request(2)) {
+            return true;
+        }
+        int cmf = source.buffer().getByte(0) & 0xff;
+        int flg = source.buffer().getByte(1) & 0xff;
+        return (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+    }
+
     private String cookieHeader(List<Cookie> cookies) {
         StringBuilder cookieHeader = new StringBuilder();
         for (int i = 0, size = cookies.size(); i < size; i++) {
@@ -366,10 +366,34 @@ final class Hpack {
         }
     }
 
+    /**
+     * 除了按HPACK规范编码外,每个连接的编码器还做了以下缓存:
+     * <ul>
+     * <li>完整头块缓存:同一头列表在动态表未变化时编码结果相同,直接复用编码后的字节</li>
+     * <li>字符串缓存:未能索引的字面量(含Huffman编码)按值缓存,避免重复编码</li>
+     * <li>插入策略:按头名称统计取值变化,频繁变化的头不再插入动态表,以免冲掉常用条目</li>
+     * </ul>
+     */
     static final class Writer {
         private static final int SETTINGS_HEADER_TABLE_SIZE = 4096;
 
         private static final int SETTINGS_HEADER_TABLE_SIZE_LIMIT = 16384;
+        /**
+         * 缓存的头块数量上限
+         */
+        private static final int MAX_CACHED_BLOCKS = 32;
+        /**
+         * 缓存的字面量数量上限
+         */
+        private static final int MAX_CACHED_LITERALS = 256;
+        /**
+         * 统计的头名称数量上限
+         */
+        private static final int MAX_TRACKED_NAMES = 256;
+        /**
+         * 头取值连续变化达到此次数后不再插入动态表
+         */
+        private static final int VOLATILE_THRESHOLD = 2;
 
         private final Buffer out;
         private final boolean useCompression;
@@ -382,6 +406,19 @@ final class Hpack {
 
         private int smallestHeaderTableSizeSetting = Integer.MAX_VALUE;
         private boolean emitDynamicTableSizeUpdate;
+        /**
+         * 动态表每次变化时递增,头块缓存仅在版本一致时有效
+         */
+        private long tableVersion;
+        private final Map<List<HttpHeaders>, CachedBlock> blockCache =
+                new LinkedHashMap<List<HttpHeaders>, CachedBlock>(MAX_CACHED_BLOCKS, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<List<HttpHeaders>, CachedBlock> eldest) {
+                        return size() > MAX_CACHED_BLOCKS;
+                    }
+                };
+        private final Map<ByteString, ByteString> literalCache = new HashMap<>();
+        private final Map<ByteString, NameStats> nameStats = new HashMap<>();
 
         Writer(Buffer out) {
             this(SETTINGS_HEADER_TABLE_SIZE, true, out);
@@ -395,6 +432,7 @@ final class Hpack {
         }
 
         private void clearDynamicTable() {
+            tableVersion++;
             Arrays.fill(dynamicTable, null);
             nextHeaderIndex = dynamicTable.length - 1;
             headerCount = 0;
@@ -404,6 +442,7 @@ final class Hpack {
         private int evictToRecoverBytes(int bytesToRecover) {
             int entriesToEvict = 0;
             if (bytesToRecover > 0) {
+                tableVersion++;
                 for (int j = dynamicTable.length - 1; j >= nextHeaderIndex && bytesToRecover > 0; j--) {
                     bytesToRecover -= dynamicTable[j].hpackSize;
                     dynamicTableByteCount -= dynamicTable[j].hpackSize;
@@ -435,6 +474,7 @@ final class Hpack {
                 nextHeaderIndex = dynamicTable.length - 1;
                 dynamicTable = doubled;
             }
+            tableVersion++;
             int index = nextHeaderIndex--;
             dynamicTable[index] = entry;
             headerCount++;
@@ -442,6 +482,28 @@ final class Hpack {
         }
 
         void writeHeaders(List<HttpHeaders> headersBlock) throws IOException {
+            if (!emitDynamicTableSizeUpdate) {
+                CachedBlock cached = blockCache.get(headersBlock);
+                if (cached != null && cached.tableVersion == tableVersion) {
+                    out.write(cached.bytes);
+                    return;
+                }
+            }
+
+            long start = out.size();
+            long version = tableVersion;
+            boolean cacheable = !emitDynamicTableSizeUpdate;
+            encodeHeaders(headersBlock);
+
+            // 编码过程中未改动动态表时,同一头列表的编码结果不变
+            if (cacheable && version == tableVersion) {
+                Buffer bytes = new Buffer();
+                out.copyTo(bytes, start, out.size() - start);
+                blockCache.put(new ArrayList<>(headersBlock), new CachedBlock(bytes.readByteString(), version));
+            }
+        }
+
+        private void encodeHeaders(List<HttpHeaders> headersBlock) throws IOException {
             if (emitDynamicTableSizeUpdate) {
                 if (smallestHeaderTableSizeSetting < maxDynamicTableByteCount) {
                     writeInt(smallestHeaderTableSizeSetting, PREFIX_5_BITS, 0x20);
@@ -486,13 +548,22 @@ final class Hpack {
                 if (headerIndex != -1) {
                     writeInt(headerIndex, PREFIX_7_BITS, 0x80);
                 } else if (headerNameIndex == -1) {
-                    out.writeByte(0x40);
-                    writeByteString(name);
-                    writeByteString(value);
-                    insertIntoDynamicTable(headers);
+                    if (shouldIndex(name, value, headers)) {
+                        out.writeByte(0x40);
+                        writeByteString(name);
+                        writeByteString(value);
+                        insertIntoDynamicTable(headers);
+                    } else {
+                        out.writeByte(0);
+                        writeByteString(name);
+                        writeLiteral(value);
+                    }
                 } else if (name.startsWith(HttpHeaders.PSEUDO_PREFIX) && !HttpHeaders.TARGET_AUTHORITY.equals(name)) {
                     writeInt(headerNameIndex, PREFIX_4_BITS, 0);
-                    writeByteString(value);
+                    writeLiteral(value);
+                } else if (!shouldIndex(name, value, headers)) {
+                    writeInt(headerNameIndex, PREFIX_4_BITS, 0);
+                    writeLiteral(value);
                 } else {
                     writeInt(headerNameIndex, PREFIX_6_BITS, 0x40);
                     writeByteString(value);
@@ -501,6 +572,59 @@ final class Hpack {
             }
         }
 
+        /**
+         * 按头名称统计取值是否稳定:取值与上次相同时降低计数,不同时增加计数,
+         * 计数达到{@link #VOLATILE_THRESHOLD}的头(如请求ID、内容长度)不再插入动态表;
+         * 超出动态表一半容量的条目同样不插入,以免一次驱逐过多条目
+         *
+         * @param name    小写的头名称
+         * @param value   头值
+         * @param headers 头信息
+         * @return 是否插入动态表
+         */
+        private boolean shouldIndex(ByteString name, ByteString value, HttpHeaders headers) {
+            if (headers.hpackSize > maxDynamicTableByteCount / 2) {
+                return false;
+            }
+            NameStats stats = nameStats.get(name);
+            if (stats == null) {
+                if (nameStats.size() >= MAX_TRACKED_NAMES) {
+                    nameStats.clear();
+                }
+                nameStats.put(name, new NameStats(value));
+                return true;
+            }
+            if (stats.lastValue.equals(value)) {
+                if (stats.changes > 0) stats.changes--;
+            } else {
+                if (stats.changes < VOLATILE_THRESHOLD * 2) stats.changes++;
+                stats.lastValue = value;
+            }
+            return stats.changes < VOLATILE_THRESHOLD;
+        }
+
+        /**
+         * 写入不进入动态表的字面量,重复出现的值直接复用此前的编码结果
+         *
+         * @param data 字面量
+         * @throws IOException 异常
+         */
+        private void writeLiteral(ByteString data) throws IOException {
+            ByteString encoded = literalCache.get(data);
+            if (encoded == null) {
+                long start = out.size();
+                writeByteString(data);
+                Buffer bytes = new Buffer();
+                out.copyTo(bytes, start, out.size() - start);
+                if (literalCache.size() >= MAX_CACHED_LITERALS) {
+                    literalCache.clear();
+                }
+                literalCache.put(data, bytes.readByteString());
+            } else {
+                out.write(encoded);
+            }
+        }
+
         void writeInt(int value, int prefixMask, int bits) {
             if (value < prefixMask) {
                 out.writeByte(bits | value);
@@ -543,6 +667,7 @@ final class Hpack {
                         effectiveHeaderTableSize);
             }
             emitDynamicTableSizeUpdate = true;
+            tableVersion++;
             maxDynamicTableByteCount = effectiveHeaderTableSize;
             adjustDynamicTableByteCount();
         }
@@ -557,6 +682,25 @@ final class Hpack {
             }
         }
 
+        static final class CachedBlock {
+            final ByteString bytes;
+            final long tableVersion;
+
+            CachedBlock(ByteString bytes, long tableVersion) {
+                this.bytes = bytes;
+                this.tableVersion = tableVersion;
+            }
+        }
+
+        static final class NameStats {
+            ByteString lastValue;
+            int changes;
+
+            NameStats(ByteString lastValue) {
+                this.lastValue = lastValue;
+            }
+        }
+
     }
 
 }
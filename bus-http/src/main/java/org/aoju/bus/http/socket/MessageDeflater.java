@@ -0,0 +1,100 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.http.socket;
+
+import org.aoju.bus.core.io.Buffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+/**
+ * permessage-deflate的消息压缩
+ * 每条消息以{@link Deflater#SYNC_FLUSH}结束,并去掉末尾的{@code 00 00 ff ff}
+ * 这个类不是线程安全的,仅{@link #close()}可由其他线程调用,用于释放本地压缩资源
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+final class MessageDeflater implements Closeable {
+
+    private final boolean noContextTakeover;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final Buffer deflatedBytes = new Buffer();
+    private final byte[] chunk = new byte[8192];
+    private boolean closed;
+
+    MessageDeflater(boolean noContextTakeover) {
+        this.noContextTakeover = noContextTakeover;
+    }
+
+    /**
+     * 将{@code buffer}的全部内容替换为压缩后的数据
+     *
+     * @param buffer 消息内容
+     * @throws IOException 已关闭或写入失败
+     */
+    synchronized void deflate(Buffer buffer) throws IOException {
+        if (closed) {
+            throw new IOException("closed");
+        }
+        if (noContextTakeover) {
+            deflater.reset();
+        }
+
+        deflater.setInput(buffer.readByteArray());
+        int count;
+        do {
+            count = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+            deflatedBytes.write(chunk, 0, count);
+        } while (count == chunk.length || !deflater.needsInput());
+
+        long size = deflatedBytes.size();
+        if (size >= 4
+                && deflatedBytes.getByte(size - 4) == 0x00
+                && deflatedBytes.getByte(size - 3) == 0x00
+                && deflatedBytes.getByte(size - 2) == (byte) 0xff
+                && deflatedBytes.getByte(size - 1) == (byte) 0xff) {
+            buffer.write(deflatedBytes, size - 4);
+            deflatedBytes.skip(4);
+        } else {
+            buffer.write(deflatedBytes, size);
+            buffer.writeByte(0x00);
+        }
+    }
+
+    /**
+     * 释放{@link Deflater}占用的本地内存,之后不能再压缩
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            deflater.end();
+        }
+    }
+
+}
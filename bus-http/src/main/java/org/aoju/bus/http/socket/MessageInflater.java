@@ -0,0 +1,102 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.http.socket;
+
+import org.aoju.bus.core.io.Buffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * permessage-deflate的消息解压
+ * 补回发送方去掉的{@code 00 00 ff ff}后整体解压
+ * 这个类不是线程安全的,仅{@link #close()}可由其他线程调用,用于释放本地解压资源
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+final class MessageInflater implements Closeable {
+
+    private static final byte[] EMPTY_DEFLATE_BLOCK = {0x00, 0x00, (byte) 0xff, (byte) 0xff};
+
+    private final boolean noContextTakeover;
+    private final Inflater inflater = new Inflater(true);
+    private final byte[] chunk = new byte[8192];
+    private boolean closed;
+
+    MessageInflater(boolean noContextTakeover) {
+        this.noContextTakeover = noContextTakeover;
+    }
+
+    /**
+     * 将{@code buffer}的全部内容替换为解压后的数据
+     *
+     * @param buffer 压缩的消息内容
+     * @throws ProtocolException 数据格式不正确
+     * @throws IOException       已关闭
+     */
+    synchronized void inflate(Buffer buffer) throws IOException {
+        if (closed) {
+            throw new IOException("closed");
+        }
+        if (noContextTakeover) {
+            inflater.reset();
+        }
+
+        buffer.write(EMPTY_DEFLATE_BLOCK);
+        inflater.setInput(buffer.readByteArray());
+        try {
+            while (!inflater.needsInput()) {
+                int count = inflater.inflate(chunk);
+                if (count == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                    break;
+                }
+                buffer.write(chunk, 0, count);
+            }
+        } catch (DataFormatException e) {
+            throw new ProtocolException("Malformed deflate message: " + e.getMessage());
+        }
+        if (inflater.finished()) {
+            // 发送方以最终块结束了压缩流,下一条消息从新的流开始
+            inflater.reset();
+        }
+    }
+
+    /**
+     * 释放{@link Inflater}占用的本地内存,之后不能再解压
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            inflater.end();
+        }
+    }
+
+}
@@ -67,6 +67,10 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
      * 客户端调用{@link #close}以等待适当关闭的最大时间量。如果服务器没有响应，websocket将被取消
      */
     private static final long CANCEL_AFTER_CLOSE_MILLIS = 60 * 1000;
+    /**
+     * 小于此长度的消息不压缩,压缩短消息得不偿失
+     */
+    private static final long MINIMUM_DEFLATE_SIZE = 1024;
     final WebSocketListener listener;
     /**
      * 应用程序的原始请求未受web套接字头的影响
@@ -75,6 +79,14 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
     private final Random random;
     private final long pingIntervalMillis;
     private final String key;
+    /**
+     * 握手时提议的扩展,为null时不协商
+     */
+    private final WebSocketExtensions extensionsOffer;
+    /**
+     * 是否合并写出排队的消息
+     */
+    private final boolean batchWrites;
     /**
      * 这个runnable处理传出队列。在进入队列后调用{@link #runWriter()}.
      */
@@ -99,6 +111,10 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
      * 在连接此web套接字之前为空。注意，消息可能在此之前排队
      */
     private WebSocketWriter writer;
+    /**
+     * 握手协商的扩展,未协商时为null
+     */
+    private WebSocketExtensions extensions;
     /**
      * 在连接此web套接字之前为空。用于写、ping和关闭超时
      */
@@ -160,6 +176,19 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
 
     public RealWebSocket(Request request, WebSocketListener listener, Random random,
                          long pingIntervalMillis) {
+        this(request, listener, random, pingIntervalMillis, null, false);
+    }
+
+    /**
+     * @param request            请求信息
+     * @param listener           监听器
+     * @param random             随机数
+     * @param pingIntervalMillis ping间隔(毫秒)
+     * @param extensionsOffer    握手时提议的扩展,为null时不协商
+     * @param batchWrites        是否将排队的多条消息合并写出,减少socket写操作
+     */
+    public RealWebSocket(Request request, WebSocketListener listener, Random random,
+                         long pingIntervalMillis, WebSocketExtensions extensionsOffer, boolean batchWrites) {
         if (!Http.GET.equals(request.method())) {
             throw new IllegalArgumentException("Request must be GET: " + request.method());
         }
@@ -167,6 +196,8 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
         this.listener = listener;
         this.random = random;
         this.pingIntervalMillis = pingIntervalMillis;
+        this.extensionsOffer = extensionsOffer;
+        this.batchWrites = batchWrites;
 
         byte[] nonce = new byte[16];
         random.nextBytes(nonce);
@@ -176,6 +207,9 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
             try {
                 while (writeOneFrame()) {
                 }
+                if (batchWrites) {
+                    flushWriter();
+                }
             } catch (IOException e) {
                 failWebSocket(e, null);
             }
@@ -202,12 +236,15 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
                 .eventListener(EventListener.NONE)
                 .protocols(ONLY_HTTP1)
                 .build();
-        final Request request = originalRequest.newBuilder()
+        Request.Builder requestBuilder = originalRequest.newBuilder()
                 .header(Header.UPGRADE, "websocket")
                 .header(Header.CONNECTION, Header.UPGRADE)
                 .header(Header.SEC_WEBSOCKET_KEY, key)
-                .header(Header.SEC_WEBSOCKET_VERSION, "13")
-                .build();
+                .header(Header.SEC_WEBSOCKET_VERSION, "13");
+        if (extensionsOffer != null && extensionsOffer.perMessageDeflate) {
+            requestBuilder.header(Header.SEC_WEBSOCKET_EXTENSIONS, extensionsOffer.header());
+        }
+        final Request request = requestBuilder.build();
         call = Builder.instance.newWebSocketCall(client, request);
         call.timeout().clearTimeout();
         call.enqueue(new Callback() {
@@ -270,12 +307,29 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
             throw new ProtocolException("Expected 'Sec-WebSocket-Accept' header value '"
                     + acceptExpected + "' but was '" + headerAccept + Symbol.SINGLE_QUOTE);
         }
+
+        WebSocketExtensions negotiated = WebSocketExtensions.parse(response.headers());
+        if (negotiated.perMessageDeflate || negotiated.unknownValues) {
+            // 服务端只能接受客户端提议的扩展;Deflater不支持调整窗口大小
+            if (extensionsOffer == null || !extensionsOffer.perMessageDeflate || negotiated.unknownValues
+                    || (negotiated.clientMaxWindowBits != null && negotiated.clientMaxWindowBits != 15)) {
+                throw new ProtocolException("Unsupported 'Sec-WebSocket-Extensions' header value '"
+                        + response.header(Header.SEC_WEBSOCKET_EXTENSIONS) + Symbol.SINGLE_QUOTE);
+            }
+            // 客户端总可以自行放弃上下文,服务端未确认时仍按提议执行
+            synchronized (this) {
+                this.extensions = new WebSocketExtensions(true, null,
+                        negotiated.clientNoContextTakeover || extensionsOffer.clientNoContextTakeover,
+                        negotiated.serverMaxWindowBits, negotiated.serverNoContextTakeover, false);
+            }
+        }
     }
 
     public void initReaderAndWriter(String name, Streams streams) {
         synchronized (this) {
             this.streams = streams;
-            this.writer = new WebSocketWriter(streams.client, streams.sink, random);
+            this.writer = new WebSocketWriter(streams.client, streams.sink, random,
+                    extensions, MINIMUM_DEFLATE_SIZE, batchWrites);
             this.executor = new ScheduledThreadPoolExecutor(1, Builder.threadFactory(name, false));
             if (pingIntervalMillis != 0) {
                 executor.scheduleAtFixedRate(
@@ -287,7 +341,7 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
             }
         }
 
-        reader = new WebSocketReader(streams.client, streams.source, this);
+        reader = new WebSocketReader(streams.client, streams.source, this, extensions);
     }
 
     public void loopReader() throws IOException {
@@ -380,6 +434,9 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
             }
         } finally {
             IoUtils.close(toClose);
+            if (toClose != null) {
+                releaseCodecs();
+            }
         }
     }
 
@@ -505,10 +562,7 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
 
             } else if (messageOrClose instanceof Message) {
                 ByteString data = ((Message) messageOrClose).data;
-                BufferSink sink = IoUtils.buffer(writer.newMessageSink(
-                        ((Message) messageOrClose).formatOpcode, data.size()));
-                sink.write(data);
-                sink.close();
+                writer.writeMessageFrame(((Message) messageOrClose).formatOpcode, data);
                 synchronized (this) {
                     queueSize -= data.size();
                 }
@@ -529,9 +583,26 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
             return true;
         } finally {
             IoUtils.close(streamsToClose);
+            if (streamsToClose != null) {
+                releaseCodecs();
+            }
         }
     }
 
+    /**
+     * 合并写出模式下,队列清空后写出缓冲区中的剩余帧
+     *
+     * @throws IOException 异常信息
+     */
+    void flushWriter() throws IOException {
+        WebSocketWriter writer;
+        synchronized (this) {
+            if (failed) return;
+            writer = this.writer;
+        }
+        writer.flush();
+    }
+
     void writePingFrame() {
         WebSocketWriter writer;
         int failedPing;
@@ -572,7 +643,22 @@ public final class RealWebSocket implements WebSocket, WebSocketReader.FrameCall
             listener.onFailure(this, e, response);
         } finally {
             IoUtils.close(streamsToClose);
+            releaseCodecs();
+        }
+    }
+
+    /**
+     * 连接结束后释放读写器持有的压缩资源
+     */
+    private void releaseCodecs() {
+        WebSocketReader reader;
+        WebSocketWriter writer;
+        synchronized (this) {
+            reader = this.reader;
+            writer = this.writer;
         }
+        IoUtils.close(reader);
+        IoUtils.close(writer);
     }
 
     static final class Message {
@@ -0,0 +1,232 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.http.socket;
+
+import org.aoju.bus.core.lang.Header;
+import org.aoju.bus.core.lang.Symbol;
+import org.aoju.bus.http.Headers;
+
+/**
+ * WebSocket扩展,目前仅支持RFC 7692定义的{@code permessage-deflate}
+ * 客户端以此作为握手时的提议,服务端的应答也解析为此对象
+ * Java的{@link java.util.zip.Deflater}不支持调整窗口大小,
+ * 因此不会提议{@code client_max_window_bits}
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public final class WebSocketExtensions {
+
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+    static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+    static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+    static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+    static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+
+    /**
+     * 是否启用permessage-deflate
+     */
+    final boolean perMessageDeflate;
+    /**
+     * 客户端压缩窗口大小,未指定时为null
+     */
+    final Integer clientMaxWindowBits;
+    /**
+     * 客户端是否在每条消息后重置压缩上下文
+     */
+    final boolean clientNoContextTakeover;
+    /**
+     * 服务端压缩窗口大小,未指定时为null
+     */
+    final Integer serverMaxWindowBits;
+    /**
+     * 服务端是否在每条消息后重置压缩上下文
+     */
+    final boolean serverNoContextTakeover;
+    /**
+     * 是否含有无法识别的扩展或参数
+     */
+    final boolean unknownValues;
+
+    WebSocketExtensions(boolean perMessageDeflate, Integer clientMaxWindowBits, boolean clientNoContextTakeover,
+                        Integer serverMaxWindowBits, boolean serverNoContextTakeover, boolean unknownValues) {
+        this.perMessageDeflate = perMessageDeflate;
+        this.clientMaxWindowBits = clientMaxWindowBits;
+        this.clientNoContextTakeover = clientNoContextTakeover;
+        this.serverMaxWindowBits = serverMaxWindowBits;
+        this.serverNoContextTakeover = serverNoContextTakeover;
+        this.unknownValues = unknownValues;
+    }
+
+    /**
+     * 提议permessage-deflate,双方都保留压缩上下文,压缩率最高
+     *
+     * @return 扩展提议
+     */
+    public static WebSocketExtensions deflate() {
+        return deflate(false, false);
+    }
+
+    /**
+     * 提议permessage-deflate
+     * 不保留上下文时每条消息单独压缩,压缩率较低,但无需在消息之间保留32K的压缩窗口
+     *
+     * @param clientNoContextTakeover 客户端是否在每条消息后重置压缩上下文
+     * @param serverNoContextTakeover 要求服务端在每条消息后重置压缩上下文
+     * @return 扩展提议
+     */
+    public static WebSocketExtensions deflate(boolean clientNoContextTakeover, boolean serverNoContextTakeover) {
+        return new WebSocketExtensions(true, null, clientNoContextTakeover,
+                null, serverNoContextTakeover, false);
+    }
+
+    /**
+     * 解析{@code Sec-WebSocket-Extensions}头
+     *
+     * @param headers 头信息
+     * @return 扩展信息
+     */
+    public static WebSocketExtensions parse(Headers headers) {
+        boolean perMessageDeflate = false;
+        Integer clientMaxWindowBits = null;
+        boolean clientNoContextTakeover = false;
+        Integer serverMaxWindowBits = null;
+        boolean serverNoContextTakeover = false;
+        boolean unknownValues = false;
+
+        for (String header : headers.values(Header.SEC_WEBSOCKET_EXTENSIONS)) {
+            for (String extension : header.split(Symbol.COMMA)) {
+                String[] parameters = extension.split(Symbol.SEMICOLON);
+                String name = parameters[0].trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                if (!PERMESSAGE_DEFLATE.equalsIgnoreCase(name) || perMessageDeflate) {
+                    // 未知扩展或重复的permessage-deflate
+                    unknownValues = true;
+                    continue;
+                }
+                perMessageDeflate = true;
+
+                for (int i = 1; i < parameters.length; i++) {
+                    String parameter = parameters[i];
+                    int equals = parameter.indexOf('=');
+                    String key = (equals == -1 ? parameter : parameter.substring(0, equals)).trim();
+                    String value = equals == -1 ? null : unquote(parameter.substring(equals + 1).trim());
+
+                    if (CLIENT_MAX_WINDOW_BITS.equalsIgnoreCase(key)) {
+                        if (clientMaxWindowBits != null) unknownValues = true;
+                        clientMaxWindowBits = windowBits(value);
+                        if (clientMaxWindowBits == null) unknownValues = true;
+                    } else if (CLIENT_NO_CONTEXT_TAKEOVER.equalsIgnoreCase(key)) {
+                        if (clientNoContextTakeover || value != null) unknownValues = true;
+                        clientNoContextTakeover = true;
+                    } else if (SERVER_MAX_WINDOW_BITS.equalsIgnoreCase(key)) {
+                        if (serverMaxWindowBits != null) unknownValues = true;
+                        serverMaxWindowBits = windowBits(value);
+                        if (serverMaxWindowBits == null) unknownValues = true;
+                    } else if (SERVER_NO_CONTEXT_TAKEOVER.equalsIgnoreCase(key)) {
+                        if (serverNoContextTakeover || value != null) unknownValues = true;
+                        serverNoContextTakeover = true;
+                    } else {
+                        unknownValues = true;
+                    }
+                }
+            }
+        }
+
+        return new WebSocketExtensions(perMessageDeflate, clientMaxWindowBits, clientNoContextTakeover,
+                serverMaxWindowBits, serverNoContextTakeover, unknownValues);
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith(Symbol.DOUBLE_QUOTES) && value.endsWith(Symbol.DOUBLE_QUOTES)) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static Integer windowBits(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            int bits = Integer.parseInt(value);
+            return bits >= 8 && bits <= 15 ? bits : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param isClient 是否为客户端
+     * @return 本端在每条消息后是否重置压缩上下文
+     */
+    boolean noContextTakeover(boolean isClient) {
+        return isClient ? clientNoContextTakeover : serverNoContextTakeover;
+    }
+
+    public boolean perMessageDeflate() {
+        return perMessageDeflate;
+    }
+
+    public boolean clientNoContextTakeover() {
+        return clientNoContextTakeover;
+    }
+
+    public boolean serverNoContextTakeover() {
+        return serverNoContextTakeover;
+    }
+
+    /**
+     * @return 作为{@code Sec-WebSocket-Extensions}头的值
+     */
+    public String header() {
+        if (!perMessageDeflate) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder(PERMESSAGE_DEFLATE);
+        if (clientMaxWindowBits != null) {
+            result.append("; ").append(CLIENT_MAX_WINDOW_BITS).append(Symbol.C_EQUAL).append(clientMaxWindowBits);
+        }
+        if (clientNoContextTakeover) {
+            result.append("; ").append(CLIENT_NO_CONTEXT_TAKEOVER);
+        }
+        if (serverMaxWindowBits != null) {
+            result.append("; ").append(SERVER_MAX_WINDOW_BITS).append(Symbol.C_EQUAL).append(serverMaxWindowBits);
+        }
+        if (serverNoContextTakeover) {
+            result.append("; ").append(SERVER_NO_CONTEXT_TAKEOVER);
+        }
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return perMessageDeflate ? header() : "none";
+    }
+
+}
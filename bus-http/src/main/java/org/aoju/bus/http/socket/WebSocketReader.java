@@ -27,7 +27,9 @@ package org.aoju.bus.http.socket;
 import org.aoju.bus.core.io.Buffer;
 import org.aoju.bus.core.io.BufferSource;
 import org.aoju.bus.core.io.ByteString;
+import org.aoju.bus.core.utils.IoUtils;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.ProtocolException;
 import java.util.concurrent.TimeUnit;
@@ -40,11 +42,15 @@ import java.util.concurrent.TimeUnit;
  * @version 5.8.1
  * @since JDK 1.8+
  */
-final class WebSocketReader {
+final class WebSocketReader implements Closeable {
 
     final boolean isClient;
     final BufferSource source;
     final FrameCallback frameCallback;
+    /**
+     * 未协商permessage-deflate时为null
+     */
+    private final MessageInflater messageInflater;
     private final Buffer controlFrameBuffer = new Buffer();
     private final Buffer messageFrameBuffer = new Buffer();
     private final byte[] maskKey;
@@ -54,8 +60,17 @@ final class WebSocketReader {
     long frameLength;
     boolean isFinalFrame;
     boolean isControlFrame;
+    boolean readingCompressedMessage;
 
     WebSocketReader(boolean isClient, BufferSource source, FrameCallback frameCallback) {
+        this(isClient, source, frameCallback, null);
+    }
+
+    /**
+     * @param extensions 协商的扩展,为null或未启用permessage-deflate时不解压
+     */
+    WebSocketReader(boolean isClient, BufferSource source, FrameCallback frameCallback,
+                    WebSocketExtensions extensions) {
         if (source == null) throw new NullPointerException("source == null");
         if (frameCallback == null) throw new NullPointerException("frameCallback == null");
         this.isClient = isClient;
@@ -64,6 +79,9 @@ final class WebSocketReader {
 
         maskKey = isClient ? null : new byte[4];
         maskCursor = isClient ? null : new Buffer.UnsafeCursor();
+        messageInflater = extensions != null && extensions.perMessageDeflate
+                ? new MessageInflater(extensions.noContextTakeover(!isClient))
+                : null;
     }
 
     void processNextFrame() throws IOException {
@@ -96,9 +114,19 @@ final class WebSocketReader {
         }
 
         boolean reservedFlag1 = (b0 & WebSocketProtocol.B0_FLAG_RSV1) != 0;
+        if (reservedFlag1) {
+            // 只有启用permessage-deflate时,消息的第一帧才能设置RSV1
+            if (messageInflater == null || isControlFrame || opcode == WebSocketProtocol.OPCODE_CONTINUATION) {
+                throw new ProtocolException("Unexpected rsv1 flag");
+            }
+            readingCompressedMessage = true;
+        } else if (!isControlFrame && opcode != WebSocketProtocol.OPCODE_CONTINUATION) {
+            readingCompressedMessage = false;
+        }
+
         boolean reservedFlag2 = (b0 & WebSocketProtocol.B0_FLAG_RSV2) != 0;
         boolean reservedFlag3 = (b0 & WebSocketProtocol.B0_FLAG_RSV3) != 0;
-        if (reservedFlag1 || reservedFlag2 || reservedFlag3) {
+        if (reservedFlag2 || reservedFlag3) {
             throw new ProtocolException("Reserved flags are unsupported.");
         }
 
@@ -178,6 +206,10 @@ final class WebSocketReader {
 
         readMessage();
 
+        if (readingCompressedMessage) {
+            messageInflater.inflate(messageFrameBuffer);
+        }
+
         if (opcode == WebSocketProtocol.OPCODE_TEXT) {
             frameCallback.onReadMessage(messageFrameBuffer.readUtf8());
         } else {
@@ -219,6 +251,14 @@ final class WebSocketReader {
         }
     }
 
+    /**
+     * 释放解压器,底层输入流由{@link RealWebSocket.Streams}负责关闭
+     */
+    @Override
+    public void close() {
+        IoUtils.close(messageInflater);
+    }
+
     public interface FrameCallback {
         void onReadMessage(String text) throws IOException;
 
@@ -24,8 +24,12 @@
  ********************************************************************************/
 package org.aoju.bus.http.socket;
 
-import org.aoju.bus.core.io.*;
+import org.aoju.bus.core.io.Buffer;
+import org.aoju.bus.core.io.BufferSink;
+import org.aoju.bus.core.io.ByteString;
+import org.aoju.bus.core.utils.IoUtils;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.Random;
 
@@ -37,7 +41,7 @@ import java.util.Random;
  * @version 5.8.1
  * @since JDK 1.8+
  */
-final class WebSocketWriter {
+final class WebSocketWriter implements Closeable {
 
     final boolean isClient;
     final Random random;
@@ -46,13 +50,33 @@ final class WebSocketWriter {
 
     final Buffer sinkBuffer;
     final Buffer buffer = new Buffer();
-    final FrameSink frameSink = new FrameSink();
     private final byte[] maskKey;
     private final Buffer.UnsafeCursor maskCursor;
+    /**
+     * 未协商permessage-deflate时为null
+     */
+    private final MessageDeflater messageDeflater;
+    /**
+     * 小于此长度的消息不压缩
+     */
+    private final long minimumDeflateSize;
+    /**
+     * 是否合并写出,为true时消息帧留在缓冲区中,直到写满一个段或调用{@link #flush()}
+     */
+    private final boolean batchWrites;
     boolean writerClosed;
-    boolean activeWriter;
 
     WebSocketWriter(boolean isClient, BufferSink sink, Random random) {
+        this(isClient, sink, random, null, 0, false);
+    }
+
+    /**
+     * @param extensions         协商的扩展,为null或未启用permessage-deflate时不压缩
+     * @param minimumDeflateSize 压缩阈值
+     * @param batchWrites        是否合并写出
+     */
+    WebSocketWriter(boolean isClient, BufferSink sink, Random random, WebSocketExtensions extensions,
+                    long minimumDeflateSize, boolean batchWrites) {
         if (sink == null) throw new NullPointerException("sink == null");
         if (random == null) throw new NullPointerException("random == null");
         this.isClient = isClient;
@@ -62,6 +86,11 @@ final class WebSocketWriter {
 
         maskKey = isClient ? new byte[4] : null;
         maskCursor = isClient ? new Buffer.UnsafeCursor() : null;
+        messageDeflater = extensions != null && extensions.perMessageDeflate
+                ? new MessageDeflater(extensions.noContextTakeover(isClient))
+                : null;
+        this.minimumDeflateSize = minimumDeflateSize;
+        this.batchWrites = batchWrites;
     }
 
     void writePing(ByteString payload) throws IOException {
@@ -137,28 +166,24 @@ final class WebSocketWriter {
         sink.flush();
     }
 
-    Sink newMessageSink(int formatOpcode, long contentLength) {
-        if (activeWriter) {
-            throw new IllegalStateException("Another message writer is active. Did you call close()?");
-        }
-        activeWriter = true;
-
-        frameSink.formatOpcode = formatOpcode;
-        frameSink.contentLength = contentLength;
-        frameSink.isFirstFrame = true;
-        frameSink.closed = false;
-
-        return frameSink;
-    }
-
-    void writeMessageFrame(int formatOpcode, long byteCount, boolean isFirstFrame,
-                           boolean isFinal) throws IOException {
+    /**
+     * 以单帧写出整条消息,启用permessage-deflate且消息不小于阈值时压缩并设置RSV1
+     *
+     * @param formatOpcode 消息类型
+     * @param data         消息内容
+     * @throws IOException 异常
+     */
+    void writeMessageFrame(int formatOpcode, ByteString data) throws IOException {
         if (writerClosed) throw new IOException("closed");
 
-        int b0 = isFirstFrame ? formatOpcode : WebSocketProtocol.OPCODE_CONTINUATION;
-        if (isFinal) {
-            b0 |= WebSocketProtocol.B0_FLAG_FIN;
+        buffer.write(data);
+
+        int b0 = formatOpcode | WebSocketProtocol.B0_FLAG_FIN;
+        if (messageDeflater != null && data.size() >= minimumDeflateSize) {
+            messageDeflater.deflate(buffer);
+            b0 |= WebSocketProtocol.B0_FLAG_RSV1;
         }
+        long byteCount = buffer.size();
         sinkBuffer.writeByte(b0);
 
         int b1 = 0;
@@ -195,53 +220,31 @@ final class WebSocketWriter {
             sinkBuffer.write(buffer, byteCount);
         }
 
-        sink.emit();
-    }
-
-    final class FrameSink implements Sink {
-        int formatOpcode;
-        long contentLength;
-        boolean isFirstFrame;
-        boolean closed;
-
-        @Override
-        public void write(Buffer source, long byteCount) throws IOException {
-            if (closed) throw new IOException("closed");
-
-            buffer.write(source, byteCount);
-
-            boolean deferWrite = isFirstFrame
-                    && contentLength != -1
-                    && buffer.size() > contentLength - 8192;
-
-            long emitCount = buffer.completeSegmentByteCount();
-            if (emitCount > 0 && !deferWrite) {
-                writeMessageFrame(formatOpcode, emitCount, isFirstFrame, false);
-                isFirstFrame = false;
-            }
-        }
-
-        @Override
-        public void flush() throws IOException {
-            if (closed) throw new IOException("closed");
-
-            writeMessageFrame(formatOpcode, buffer.size(), isFirstFrame, false);
-            isFirstFrame = false;
+        if (batchWrites) {
+            // 只写出完整的段,剩余部分留给后续消息或flush
+            sink.emitCompleteSegments();
+        } else {
+            sink.emit();
         }
+    }
 
-        @Override
-        public Timeout timeout() {
-            return sink.timeout();
+    /**
+     * 批量写出模式下,写出尚在缓冲区中的帧
+     *
+     * @throws IOException 异常
+     */
+    void flush() throws IOException {
+        if (!writerClosed && sinkBuffer.size() > 0) {
+            sink.flush();
         }
+    }
 
-        @Override
-        public void close() throws IOException {
-            if (closed) throw new IOException("closed");
-
-            writeMessageFrame(formatOpcode, buffer.size(), isFirstFrame, true);
-            closed = true;
-            activeWriter = false;
-        }
+    /**
+     * 释放压缩器,底层输出流由{@link RealWebSocket.Streams}负责关闭
+     */
+    @Override
+    public void close() {
+        IoUtils.close(messageDeflater);
     }
 
 }
@@ -28,6 +28,8 @@ import org.aoju.bus.core.utils.CallerUtils;
 import org.aoju.bus.core.utils.StringUtils;
 import org.aoju.bus.logger.level.Level;
 
+import java.util.function.Supplier;
+
 /**
  * 静态日志类,用于在不引入日志对象的情况下打印日志
  *
@@ -39,10 +41,42 @@ public final class Logger {
 
     private static final String FQCN = Logger.class.getName();
 
+    /**
+     * 按调用点缓存日志发出类, key为Supplier的实现类(每个lambda表达式对应一个类)
+     */
+    private static final ClassValue<Class<?>> CALLERS = new ClassValue<Class<?>>() {
+        @Override
+        protected Class<?> computeValue(Class<?> type) {
+            return resolveCaller(type);
+        }
+    };
+
+    /**
+     * 全局日志级别下限,低于此级别的日志在获取调用者之前直接丢弃
+     */
+    private static volatile Level threshold = Level.ALL;
+
     private Logger() {
 
     }
 
+    /**
+     * 设置全局日志级别下限,低于此级别的静态日志调用不再获取调用者及格式化消息
+     * 默认为{@link Level#ALL},即完全由具体日志实现决定
+     *
+     * @param level 日志级别
+     */
+    public static void setLevel(Level level) {
+        threshold = null == level ? Level.ALL : level;
+    }
+
+    /**
+     * @return 全局日志级别下限
+     */
+    public static Level getLevel() {
+        return threshold;
+    }
+
     /**
      * Trace等级日志,小于debug
      * 由于动态获取Log,效率较低,建议在非频繁调用的情况下使用！！
@@ -51,7 +85,13 @@ public final class Logger {
      * @param arguments 变量对应的参数
      */
     public static void trace(String format, Object... arguments) {
-        trace(LogFactory.get(CallerUtils.getCallers()), format, arguments);
+        if (Level.TRACE.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CallerUtils.getCallers());
+        if (log.isTrace()) {
+            trace(log, format, arguments);
+        }
     }
 
     /**
@@ -65,6 +105,22 @@ public final class Logger {
         log.trace(FQCN, null, format, arguments);
     }
 
+    /**
+     * Trace等级日志,消息在级别开启时才会生成
+     * 调用者按lambda调用点缓存,无需遍历调用栈
+     *
+     * @param message 消息提供者
+     */
+    public static void trace(Supplier<String> message) {
+        if (Level.TRACE.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CALLERS.get(message.getClass()));
+        if (log.isTrace()) {
+            log.trace(FQCN, null, message.get());
+        }
+    }
+
     /**
      * Debug等级日志,小于Info
      * 由于动态获取Log,效率较低,建议在非频繁调用的情况下使用！！
@@ -73,7 +129,13 @@ public final class Logger {
      * @param arguments 变量对应的参数
      */
     public static void debug(String format, Object... arguments) {
-        debug(LogFactory.get(CallerUtils.getCallers()), format, arguments);
+        if (Level.DEBUG.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CallerUtils.getCallers());
+        if (log.isDebug()) {
+            debug(log, format, arguments);
+        }
     }
 
     /**
@@ -87,6 +149,22 @@ public final class Logger {
         log.debug(FQCN, null, format, arguments);
     }
 
+    /**
+     * Debug等级日志,消息在级别开启时才会生成
+     * 调用者按lambda调用点缓存,无需遍历调用栈
+     *
+     * @param message 消息提供者
+     */
+    public static void debug(Supplier<String> message) {
+        if (Level.DEBUG.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CALLERS.get(message.getClass()));
+        if (log.isDebug()) {
+            log.debug(FQCN, null, message.get());
+        }
+    }
+
     /**
      * Info等级日志,小于Warn
      * 由于动态获取Log,效率较低,建议在非频繁调用的情况下使用！！
@@ -95,7 +173,13 @@ public final class Logger {
      * @param arguments 变量对应的参数
      */
     public static void info(String format, Object... arguments) {
-        info(LogFactory.get(CallerUtils.getCallers()), format, arguments);
+        if (Level.INFO.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CallerUtils.getCallers());
+        if (log.isInfo()) {
+            info(log, format, arguments);
+        }
     }
 
     /**
@@ -109,6 +193,22 @@ public final class Logger {
         log.info(FQCN, null, format, arguments);
     }
 
+    /**
+     * Info等级日志,消息在级别开启时才会生成
+     * 调用者按lambda调用点缓存,无需遍历调用栈
+     *
+     * @param message 消息提供者
+     */
+    public static void info(Supplier<String> message) {
+        if (Level.INFO.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CALLERS.get(message.getClass()));
+        if (log.isInfo()) {
+            log.info(FQCN, null, message.get());
+        }
+    }
+
     /**
      * Warn等级日志,小于Error
      * 由于动态获取Log,效率较低,建议在非频繁调用的情况下使用！！
@@ -117,7 +217,13 @@ public final class Logger {
      * @param arguments 变量对应的参数
      */
     public static void warn(String format, Object... arguments) {
-        warn(LogFactory.get(CallerUtils.getCallers()), format, arguments);
+        if (Level.WARN.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CallerUtils.getCallers());
+        if (log.isWarn()) {
+            warn(log, format, arguments);
+        }
     }
 
     /**
@@ -129,7 +235,13 @@ public final class Logger {
      * @param arguments 变量对应的参数
      */
     public static void warn(Throwable e, String format, Object... arguments) {
-        warn(LogFactory.get(CallerUtils.getCallers()), e, StringUtils.format(format, arguments));
+        if (Level.WARN.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CallerUtils.getCallers());
+        if (log.isWarn()) {
+            warn(log, e, StringUtils.format(format, arguments));
+        }
     }
 
     /**
@@ -155,6 +267,39 @@ public final class Logger {
         log.warn(FQCN, e, format, arguments);
     }
 
+    /**
+     * Warn等级日志,消息在级别开启时才会生成
+     * 调用者按lambda调用点缓存,无需遍历调用栈
+     *
+     * @param message 消息提供者
+     */
+    public static void warn(Supplier<String> message) {
+        if (Level.WARN.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CALLERS.get(message.getClass()));
+        if (log.isWarn()) {
+            log.warn(FQCN, null, message.get());
+        }
+    }
+
+    /**
+     * Warn等级日志,消息在级别开启时才会生成
+     * 调用者按lambda调用点缓存,无需遍历调用栈
+     *
+     * @param e       需在日志中堆栈打印的异常
+     * @param message 消息提供者
+     */
+    public static void warn(Throwable e, Supplier<String> message) {
+        if (Level.WARN.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CALLERS.get(message.getClass()));
+        if (log.isWarn()) {
+            log.warn(FQCN, e, message.get());
+        }
+    }
+
     /**
      * Error等级日志
      * 由于动态获取Log,效率较低,建议在非频繁调用的情况下使用！！
@@ -162,7 +307,13 @@ public final class Logger {
      * @param e 需在日志中堆栈打印的异常
      */
     public static void error(Throwable e) {
-        error(LogFactory.get(CallerUtils.getCallers()), e);
+        if (Level.ERROR.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CallerUtils.getCallers());
+        if (log.isError()) {
+            error(log, e);
+        }
     }
 
     /**
@@ -173,7 +324,13 @@ public final class Logger {
      * @param arguments 变量对应的参数
      */
     public static void error(String format, Object... arguments) {
-        error(LogFactory.get(CallerUtils.getCallers()), format, arguments);
+        if (Level.ERROR.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CallerUtils.getCallers());
+        if (log.isError()) {
+            error(log, format, arguments);
+        }
     }
 
     /**
@@ -185,7 +342,13 @@ public final class Logger {
      * @param arguments 变量对应的参数
      */
     public static void error(Throwable e, String format, Object... arguments) {
-        error(LogFactory.get(CallerUtils.getCallers()), e, format, arguments);
+        if (Level.ERROR.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CallerUtils.getCallers());
+        if (log.isError()) {
+            error(log, e, format, arguments);
+        }
     }
 
     /**
@@ -221,6 +384,39 @@ public final class Logger {
         log.error(FQCN, e, format, arguments);
     }
 
+    /**
+     * Error等级日志,消息在级别开启时才会生成
+     * 调用者按lambda调用点缓存,无需遍历调用栈
+     *
+     * @param message 消息提供者
+     */
+    public static void error(Supplier<String> message) {
+        if (Level.ERROR.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CALLERS.get(message.getClass()));
+        if (log.isError()) {
+            log.error(FQCN, null, message.get());
+        }
+    }
+
+    /**
+     * Error等级日志,消息在级别开启时才会生成
+     * 调用者按lambda调用点缓存,无需遍历调用栈
+     *
+     * @param e       需在日志中堆栈打印的异常
+     * @param message 消息提供者
+     */
+    public static void error(Throwable e, Supplier<String> message) {
+        if (Level.ERROR.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CALLERS.get(message.getClass()));
+        if (log.isError()) {
+            log.error(FQCN, e, message.get());
+        }
+    }
+
     /**
      * 打印日志
      *
@@ -230,7 +426,13 @@ public final class Logger {
      * @param arguments 变量对应的参数
      */
     public static void log(Level level, Throwable t, String format, Object... arguments) {
-        LogFactory.get(CallerUtils.getCallers()).log(FQCN, level, t, format, arguments);
+        if (level.compareTo(threshold) < 0) {
+            return;
+        }
+        final Log log = LogFactory.get(CallerUtils.getCallers());
+        if (log.isEnabled(level)) {
+            log.log(FQCN, level, t, format, arguments);
+        }
     }
 
     /**
@@ -305,4 +507,29 @@ public final class Logger {
         return LogFactory.get(CallerUtils.getCallers()).isError();
     }
 
+    /**
+     * 根据Supplier实现类推断日志发出类
+     * lambda生成的类名形如 {@code com.foo.Bar$$Lambda$12/0x0000000800066840},取其宿主类
+     *
+     * @param type Supplier实现类
+     * @return 日志发出类
+     */
+    private static Class<?> resolveCaller(Class<?> type) {
+        final String name = type.getName();
+        // JDK 8-20: Foo$$Lambda$12/0x..., JDK 21+: Foo$$Lambda/0x...
+        final int index = name.indexOf("$$Lambda");
+        if (index > 0) {
+            try {
+                return Class.forName(name.substring(0, index), false, type.getClassLoader());
+            } catch (ClassNotFoundException ignored) {
+                // fall through
+            }
+        }
+        Class<?> caller = type;
+        while (null != caller.getEnclosingClass()) {
+            caller = caller.getEnclosingClass();
+        }
+        return caller;
+    }
+
 }
@@ -0,0 +1,122 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.logger.dialect.async;
+
+import org.aoju.bus.logger.AbstractAware;
+import org.aoju.bus.logger.Log;
+import org.aoju.bus.logger.level.Level;
+
+/**
+ * 异步日志,级别判断在调用线程完成,输出交由{@link AsyncLogFactory}的后台线程
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public class AsyncLog extends AbstractAware {
+
+    private final Log log;
+
+    private final transient AsyncLogFactory factory;
+
+    /**
+     * 构造
+     *
+     * @param log     实际输出日志的对象
+     * @param factory 异步日志工厂
+     */
+    public AsyncLog(Log log, AsyncLogFactory factory) {
+        this.log = log;
+        this.factory = factory;
+    }
+
+    @Override
+    public String getName() {
+        return log.getName();
+    }
+
+    @Override
+    public boolean isTrace() {
+        return log.isTrace();
+    }
+
+    @Override
+    public void trace(String fqcn, Throwable t, String format, Object... arguments) {
+        log(fqcn, Level.TRACE, t, format, arguments);
+    }
+
+    @Override
+    public boolean isDebug() {
+        return log.isDebug();
+    }
+
+    @Override
+    public void debug(String fqcn, Throwable t, String format, Object... arguments) {
+        log(fqcn, Level.DEBUG, t, format, arguments);
+    }
+
+    @Override
+    public boolean isInfo() {
+        return log.isInfo();
+    }
+
+    @Override
+    public void info(String fqcn, Throwable t, String format, Object... arguments) {
+        log(fqcn, Level.INFO, t, format, arguments);
+    }
+
+    @Override
+    public boolean isWarn() {
+        return log.isWarn();
+    }
+
+    @Override
+    public void warn(String fqcn, Throwable t, String format, Object... arguments) {
+        log(fqcn, Level.WARN, t, format, arguments);
+    }
+
+    @Override
+    public boolean isError() {
+        return log.isError();
+    }
+
+    @Override
+    public void error(String fqcn, Throwable t, String format, Object... arguments) {
+        log(fqcn, Level.ERROR, t, format, arguments);
+    }
+
+    @Override
+    public boolean isEnabled(Level level) {
+        return log.isEnabled(level);
+    }
+
+    @Override
+    public void log(String fqcn, Level level, Throwable t, String format, Object... arguments) {
+        if (log.isEnabled(level)) {
+            factory.publish(log, fqcn, level, t, format, arguments);
+        }
+    }
+
+}
@@ -0,0 +1,321 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.logger.dialect.async;
+
+import org.aoju.bus.core.lang.Console;
+import org.aoju.bus.core.utils.StringUtils;
+import org.aoju.bus.logger.LocationAware;
+import org.aoju.bus.logger.Log;
+import org.aoju.bus.logger.LogFactory;
+import org.aoju.bus.logger.level.Level;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步日志工厂,包装任意{@link LogFactory}
+ * 日志事件进入有界无锁环形队列,由后台线程批量写入实际的日志实现,
+ * 调用线程不再受慢速输出(控制台、磁盘)影响
+ * <p>
+ * 使用方式: {@code LogFactory.setCurrentLogFactory(new AsyncLogFactory(LogFactory.create()))}
+ * <p>
+ * 实现{@link LocationAware}的日志(如JDK日志)由发布线程取得调用位置随事件传递;
+ * 其他日志实现在输出线程中无法取得原始调用位置,应在其配置中关闭位置信息(如log4j2的includeLocation)
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public class AsyncLogFactory extends LogFactory {
+
+    /**
+     * 默认队列容量
+     */
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * 每批次最多写出的事件数
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * 队列为空时后台线程的最长休眠时间
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * 关闭时等待剩余事件写出的最长时间
+     */
+    private static final long SHUTDOWN_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private final LogFactory factory;
+
+    private final Policy policy;
+
+    private final RingQueue<Event> queue;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread worker;
+
+    /**
+     * JVM关闭钩子,主动关闭时注销,避免反复创建工厂时钩子累积
+     */
+    private final Thread shutdownHook;
+
+    private volatile boolean running = true;
+
+    private volatile boolean sleeping;
+
+    /**
+     * 构造
+     *
+     * @param factory 实际输出日志的工厂
+     */
+    public AsyncLogFactory(LogFactory factory) {
+        this(factory, DEFAULT_CAPACITY, Policy.DISCARD);
+    }
+
+    /**
+     * 构造
+     *
+     * @param factory  实际输出日志的工厂
+     * @param capacity 队列容量,向上取整为2的幂
+     * @param policy   队列满时的处理策略
+     */
+    public AsyncLogFactory(LogFactory factory, int capacity, Policy policy) {
+        super("Async " + factory.getName());
+        this.factory = factory;
+        this.policy = policy;
+        this.queue = new RingQueue<>(capacity);
+
+        this.worker = new Thread(this::drain, "logger:async");
+        this.worker.setDaemon(true);
+        this.worker.start();
+        this.shutdownHook = new Thread(this::shutdown, "logger:async-shutdown");
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+    /**
+     * 参数快照: 不可变类型直接保留,其余类型转为字符串,调用方可立即复用参数对象
+     */
+    private static Object[] snapshot(Object[] arguments) {
+        if (null == arguments || 0 == arguments.length) {
+            return arguments;
+        }
+        Object[] copy = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            Object argument = arguments[i];
+            copy[i] = isImmutable(argument) ? argument : StringUtils.toString(argument);
+        }
+        return copy;
+    }
+
+    private static boolean isImmutable(Object argument) {
+        return null == argument
+                || argument instanceof String
+                || argument instanceof Integer
+                || argument instanceof Long
+                || argument instanceof Short
+                || argument instanceof Byte
+                || argument instanceof Double
+                || argument instanceof Float
+                || argument instanceof Boolean
+                || argument instanceof Character
+                || argument instanceof BigDecimal
+                || argument instanceof BigInteger
+                || argument instanceof Enum
+                || argument instanceof Class
+                || argument instanceof Throwable;
+    }
+
+    @Override
+    public Log createLog(String name) {
+        return new AsyncLog(factory.createLog(name), this);
+    }
+
+    @Override
+    public Log createLog(Class<?> clazz) {
+        return new AsyncLog(factory.createLog(clazz), this);
+    }
+
+    /**
+     * @return 因队列已满被丢弃的事件数
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return 等待写出的事件数
+     */
+    public int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * 停止接收事件并等待队列中剩余事件写出
+     * 已注册为JVM关闭钩子,主动调用时同时注销钩子,关闭后的日志在调用线程同步输出
+     */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // JVM正在关闭,钩子将自行执行
+            }
+        }
+        LockSupport.unpark(worker);
+        try {
+            worker.join(SHUTDOWN_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void publish(Log log, String fqcn, Level level, Throwable t, String format, Object[] arguments) {
+        // 后台线程自身或关闭后产生的日志直接同步输出,避免自我阻塞
+        if (!running || Thread.currentThread() == worker) {
+            log.log(fqcn, level, t, format, arguments);
+            return;
+        }
+
+        StackTraceElement caller = log instanceof LocationAware ? caller(fqcn) : null;
+        Event event = new Event(log, fqcn, caller, level, t, format, snapshot(arguments));
+        while (!queue.offer(event)) {
+            if (policy == Policy.DROP_OLDEST) {
+                if (null != queue.poll()) {
+                    dropped.increment();
+                }
+            } else if (policy == Policy.DISCARD && level.compareTo(Level.WARN) < 0) {
+                dropped.increment();
+                return;
+            } else {
+                LockSupport.unpark(worker);
+                LockSupport.parkNanos(1000L);
+                if (!running) {
+                    log.log(fqcn, level, t, format, arguments);
+                    return;
+                }
+            }
+        }
+
+        if (sleeping) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * 在发布线程中查找调用位置: 调用栈中最后一个{@code fqcn}帧的下一帧
+     */
+    private static StackTraceElement caller(String fqcn) {
+        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+        for (int i = stackTrace.length - 2; i > -1; i--) {
+            if (fqcn.equals(stackTrace[i].getClassName())) {
+                return stackTrace[i + 1];
+            }
+        }
+        return null;
+    }
+
+    private void drain() {
+        List<Event> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            if (queue.drainTo(batch, BATCH_SIZE) == 0) {
+                sleeping = true;
+                if (running && queue.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                }
+                sleeping = false;
+                continue;
+            }
+
+            for (Event event : batch) {
+                try {
+                    if (event.log instanceof LocationAware) {
+                        ((LocationAware) event.log).log(event.caller, event.level, event.t, event.format, event.arguments);
+                    } else {
+                        event.log.log(event.fqcn, event.level, event.t, event.format, event.arguments);
+                    }
+                } catch (Throwable e) {
+                    Console.error(e, "Async log [{}] write error!", event.log.getName());
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * 队列已满时的处理策略
+     */
+    public enum Policy {
+        /**
+         * 阻塞调用线程直到有空位
+         */
+        BLOCK,
+        /**
+         * 丢弃WARN以下级别的事件,WARN及以上阻塞等待
+         */
+        DISCARD,
+        /**
+         * 丢弃队列中最早的事件
+         */
+        DROP_OLDEST
+    }
+
+    /**
+     * 日志事件
+     */
+    private static final class Event {
+
+        private final Log log;
+        private final String fqcn;
+        private final StackTraceElement caller;
+        private final Level level;
+        private final Throwable t;
+        private final String format;
+        private final Object[] arguments;
+
+        private Event(Log log, String fqcn, StackTraceElement caller, Level level, Throwable t, String format, Object[] arguments) {
+            this.log = log;
+            this.fqcn = fqcn;
+            this.caller = caller;
+            this.level = level;
+            this.t = t;
+            this.format = format;
+            this.arguments = arguments;
+        }
+    }
+
+}
@@ -27,6 +27,7 @@ package org.aoju.bus.logger.dialect.jdk;
 import org.aoju.bus.core.lang.Normal;
 import org.aoju.bus.core.utils.StringUtils;
 import org.aoju.bus.logger.AbstractAware;
+import org.aoju.bus.logger.LocationAware;
 
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -39,7 +40,7 @@ import java.util.logging.Logger;
  * @version 5.8.1
  * @since JDK 1.8+
  */
-public class JdkLog extends AbstractAware {
+public class JdkLog extends AbstractAware implements LocationAware {
 
     private final transient Logger logger;
 
@@ -138,6 +139,25 @@ public class JdkLog extends AbstractAware {
 
     @Override
     public void log(String fqcn, org.aoju.bus.logger.level.Level level, Throwable t, String format, Object... arguments) {
+        logIfEnabled(fqcn, toJdkLevel(level), t, format, arguments);
+    }
+
+    @Override
+    public void log(StackTraceElement caller, org.aoju.bus.logger.level.Level level, Throwable t, String format, Object... arguments) {
+        Level jdkLevel = toJdkLevel(level);
+        if (logger.isLoggable(jdkLevel)) {
+            LogRecord record = new LogRecord(jdkLevel, StringUtils.format(format, arguments));
+            record.setLoggerName(getName());
+            record.setThrown(t);
+            if (null != caller) {
+                record.setSourceClassName(caller.getClassName());
+                record.setSourceMethodName(caller.getMethodName());
+            }
+            logger.log(record);
+        }
+    }
+
+    private static Level toJdkLevel(org.aoju.bus.logger.level.Level level) {
         Level jdkLevel;
         switch (level) {
             case TRACE:
@@ -158,7 +178,7 @@ public class JdkLog extends AbstractAware {
             default:
                 throw new Error(StringUtils.format("Can not identify level: {}", level));
         }
-        logIfEnabled(fqcn, jdkLevel, t, format, arguments);
+        return jdkLevel;
     }
 
     /**
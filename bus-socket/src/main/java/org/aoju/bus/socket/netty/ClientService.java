@@ -26,6 +26,10 @@ package org.aoju.bus.socket.netty;
 
 import io.netty.channel.ChannelHandlerContext;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * @author Kimi Liu
  * @version 5.8.1
@@ -33,8 +37,18 @@ import io.netty.channel.ChannelHandlerContext;
  */
 public class ClientService {
 
+    /**
+     * 单独统计的主题数上限
+     */
+    public static final int MAX_TOPICS = 1024;
+    /**
+     * 超出上限后新主题的统计合并到该键下
+     */
+    public static final String OTHER_TOPICS = "*";
+
     private static ClientMap activeClients = new ClientMap();
-    private static ClientGroup group = new ClientGroup();
+    private static SubscriptionRegistry registry = new SubscriptionRegistry();
+    private static Map<String, PublishMetrics> metrics = new ConcurrentHashMap<>();
 
     public static void active(ChannelHandlerContext context) {
         activeClients.put(context.channel().id(), new SocketClient(context.channel()));
@@ -53,34 +67,16 @@ public class ClientService {
     }
 
     public static SocketClient subscribe(ChannelHandlerContext context, String topic) {
-        if (group.containsKey(topic)) {
-            ClientMap map = group.get(topic);
-            return subscribe(context, topic, map);
-        } else {
-            ClientMap map = new ClientMap();
-            group.put(topic, map);
-            return subscribe(context, topic, map);
-        }
-    }
-
-    private static SocketClient subscribe(ChannelHandlerContext context, String topic, ClientMap map) {
-        if (map.containsKey(context.channel().id())) {
-            SocketClient client = map.get(context.channel().id());
-            client.subscribe(topic);
-            return client;
-        } else {
-            SocketClient client = getClient(context);
+        SocketClient client = getClient(context);
+        if (null != client) {
             client.subscribe(topic);
-            map.put(context.channel().id(), client);
-            return client;
         }
+        return client;
     }
 
     public static void remove(ChannelHandlerContext context) {
         inactive(context);
-        for (ClientMap map : group.values()) {
-            map.remove(context.channel().id());
-        }
+        registry.remove(context.channel().id());
     }
 
     public static void publish(String topic, String message) {
@@ -88,7 +84,33 @@ public class ClientService {
     }
 
     public static ClientGroup getClientGroup() {
-        return group;
+        return registry.getClientGroup();
+    }
+
+    public static SubscriptionRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * 获取主题的发布统计,单独统计的主题超过{@link #MAX_TOPICS}后,
+     * 新主题合并到{@link #OTHER_TOPICS}下,避免发布大量临时主题时无限增长
+     *
+     * @param topic 主题
+     * @return 发布统计
+     */
+    public static PublishMetrics getPublishMetrics(String topic) {
+        PublishMetrics result = metrics.get(topic);
+        if (null == result) {
+            if (metrics.size() >= MAX_TOPICS) {
+                topic = OTHER_TOPICS;
+            }
+            result = metrics.computeIfAbsent(topic, PublishMetrics::new);
+        }
+        return result;
+    }
+
+    public static Map<String, PublishMetrics> getPublishMetrics() {
+        return Collections.unmodifiableMap(metrics);
     }
 
 }
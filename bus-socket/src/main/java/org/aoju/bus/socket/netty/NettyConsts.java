@@ -44,6 +44,19 @@ public class NettyConsts {
 
     public static final String TOPIC_ALL = "all";
 
+    /**
+     * 主题层级分隔符
+     */
+    public static final String TOPIC_SEPARATOR = ".";
+    /**
+     * 匹配单个层级的通配符
+     */
+    public static final String TOPIC_WILDCARD_ONE = "*";
+    /**
+     * 匹配剩余全部层级的通配符,只能位于末尾
+     */
+    public static final String TOPIC_WILDCARD_ALL = "#";
+
     public static int BOSS_GROUP_THREADS = 1;
     public static int WORKER_GROUP_THREADS = 0;
     public static String END_POINT = "/ws";
@@ -24,7 +24,25 @@
  ********************************************************************************/
 package org.aoju.bus.socket.netty;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.aoju.bus.logger.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
 /**
+ * 主题发布
+ * 消息只编码一次,各订阅者写出共享缓冲区的引用计数副本,
+ * 并按事件循环分批写出,每批结束时统一刷新
+ *
  * @author Kimi Liu
  * @version 5.8.1
  * @since JDK 1.8+
@@ -41,11 +59,75 @@ public class PublishCommand implements Runnable {
 
     @Override
     public void run() {
-        ClientGroup group = ClientService.getClientGroup();
-        if (group.containsKey(topic)) {
-            ClientMap map = group.get(topic);
-            for (SocketClient client : map.values()) {
-                client.send(topic, message);
+        Collection<SocketClient> clients = ClientService.getRegistry().match(topic);
+        if (clients.isEmpty()) {
+            return;
+        }
+
+        Map<EventLoop, List<SocketClient>> batches = new IdentityHashMap<>();
+        int fanout = 0;
+        for (SocketClient client : clients) {
+            if (client.getChannel().isActive()) {
+                batches.computeIfAbsent(client.getChannel().eventLoop(), loop -> new ArrayList<>()).add(client);
+                fanout++;
+            }
+        }
+
+        PublishMetrics metrics = ClientService.getPublishMetrics(topic);
+        if (fanout == 0) {
+            metrics.recordPublish(0, 0, 0);
+            return;
+        }
+
+        long start = System.nanoTime();
+        ByteBuf payload = ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT, message);
+        long encodeNanos = System.nanoTime() - start;
+        int bytes = payload.readableBytes();
+        try {
+            for (Map.Entry<EventLoop, List<SocketClient>> entry : batches.entrySet()) {
+                payload.retain();
+                try {
+                    entry.getKey().execute(new Batch(entry.getValue(), payload, metrics));
+                } catch (RejectedExecutionException e) {
+                    // 事件循环已关闭,批次不会执行,归还为其保留的引用
+                    payload.release();
+                    Logger.warn("Publish to topic [{}] rejected by event loop: {}", topic, e.getMessage());
+                }
+            }
+        } finally {
+            payload.release();
+        }
+        metrics.recordPublish(fanout, bytes, encodeNanos);
+    }
+
+    /**
+     * 同一事件循环上的订阅者,先全部写出再统一刷新
+     */
+    private static class Batch implements Runnable {
+
+        private final List<SocketClient> clients;
+        private final ByteBuf payload;
+        private final PublishMetrics metrics;
+
+        Batch(List<SocketClient> clients, ByteBuf payload, PublishMetrics metrics) {
+            this.clients = clients;
+            this.payload = payload;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                for (SocketClient client : clients) {
+                    client.write(new TextWebSocketFrame(payload.retainedDuplicate()));
+                }
+                for (SocketClient client : clients) {
+                    client.flush();
+                }
+            } finally {
+                payload.release();
+                metrics.recordWrite(System.nanoTime() - start);
             }
         }
     }
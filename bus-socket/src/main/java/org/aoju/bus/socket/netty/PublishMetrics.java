@@ -0,0 +1,130 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.socket.netty;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 主题发布统计
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public class PublishMetrics {
+
+    private final String topic;
+    private final LongAdder publishCount = new LongAdder();
+    private final LongAdder fanoutCount = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final AtomicLong maxFanout = new AtomicLong();
+    private volatile int lastFanout;
+
+    public PublishMetrics(String topic) {
+        this.topic = topic;
+    }
+
+    void recordPublish(int fanout, int bytes, long encodeNanos) {
+        this.publishCount.increment();
+        this.fanoutCount.add(fanout);
+        this.bytesWritten.add((long) fanout * bytes);
+        this.encodeNanos.add(encodeNanos);
+        this.maxFanout.accumulateAndGet(fanout, Math::max);
+        this.lastFanout = fanout;
+    }
+
+    void recordWrite(long writeNanos) {
+        this.writeNanos.add(writeNanos);
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * @return 发布次数
+     */
+    public long getPublishCount() {
+        return publishCount.sum();
+    }
+
+    /**
+     * @return 累计写出的消息数
+     */
+    public long getFanoutCount() {
+        return fanoutCount.sum();
+    }
+
+    /**
+     * @return 最近一次发布的订阅者数
+     */
+    public int getLastFanout() {
+        return lastFanout;
+    }
+
+    /**
+     * @return 单次发布的最大订阅者数
+     */
+    public long getMaxFanout() {
+        return maxFanout.get();
+    }
+
+    /**
+     * @return 累计写出的消息体字节数
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * @return 累计编码耗时(纳秒),每次发布只编码一次
+     */
+    public long getEncodeNanos() {
+        return encodeNanos.sum();
+    }
+
+    /**
+     * @return 累计写出耗时(纳秒),为各事件循环上批量写出与刷新的耗时之和
+     */
+    public long getWriteNanos() {
+        return writeNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "PublishMetrics{topic=" + topic
+                + ", publishCount=" + getPublishCount()
+                + ", fanoutCount=" + getFanoutCount()
+                + ", lastFanout=" + lastFanout
+                + ", maxFanout=" + getMaxFanout()
+                + ", bytesWritten=" + getBytesWritten()
+                + ", encodeNanos=" + getEncodeNanos()
+                + ", writeNanos=" + getWriteNanos() + "}";
+    }
+
+}
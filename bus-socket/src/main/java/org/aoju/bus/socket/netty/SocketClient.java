@@ -28,7 +28,6 @@ import io.netty.channel.Channel;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 
 import java.util.ArrayList;
-import java.util.List;
 
 /**
  * @author Kimi Liu
@@ -38,7 +37,6 @@ import java.util.List;
 public class SocketClient {
 
     private Channel channel;
-    private List<String> topics = new ArrayList<>();
     private Long lastUpdateTime = System.currentTimeMillis();
     private Long inactiveTime = 60000L;
 
@@ -47,7 +45,7 @@ public class SocketClient {
     }
 
     public void send(String topic, String message) {
-        if (this.topics.contains(topic)) {
+        if (isSubscribed(topic)) {
             channel.writeAndFlush(new TextWebSocketFrame(message));
             lastUpdateTime = System.currentTimeMillis();
         }
@@ -58,6 +56,28 @@ public class SocketClient {
         lastUpdateTime = System.currentTimeMillis();
     }
 
+    /**
+     * 写出消息但不刷新,由调用方批量刷新
+     *
+     * @param frame 消息帧
+     */
+    public void write(TextWebSocketFrame frame) {
+        channel.write(frame);
+        lastUpdateTime = System.currentTimeMillis();
+    }
+
+    public void flush() {
+        channel.flush();
+    }
+
+    public boolean isSubscribed(String topic) {
+        return ClientService.getRegistry().isSubscribed(this, topic);
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
     public void sendHeartbeat() {
         channel.writeAndFlush(new TextWebSocketFrame(NettyConsts.HEARTBEAT_TEXT));
     }
@@ -67,23 +87,22 @@ public class SocketClient {
     }
 
     public void subscribe(String topic) {
-        if (!this.topics.contains(topic)) {
-            this.topics.add(topic);
-        }
+        ClientService.getRegistry().subscribe(this, topic);
         lastUpdateTime = System.currentTimeMillis();
     }
 
     public void cancel(String data) {
-        for (String topic : topics) {
-            SocketService.onCancel(this, topic, data);
+        SubscriptionRegistry registry = ClientService.getRegistry();
+        for (String topic : new ArrayList<>(registry.topics(this))) {
+            if (registry.unsubscribe(this, topic)) {
+                SocketService.onCancel(this, topic, data);
+            }
         }
-        topics.clear();
         lastUpdateTime = System.currentTimeMillis();
     }
 
     public void cancel(String topic, String data) {
-        if (this.topics.contains(topic)) {
-            this.topics.remove(topic);
+        if (ClientService.getRegistry().unsubscribe(this, topic)) {
             SocketService.onCancel(this, topic, data);
         }
         lastUpdateTime = System.currentTimeMillis();
@@ -0,0 +1,175 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.socket.netty;
+
+import io.netty.channel.ChannelId;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 订阅关系注册表
+ * 正向索引 主题 -> 客户端,反向索引 客户端 -> 主题,
+ * 断开连接时只需处理该客户端自身的订阅;通配主题保存在前缀树中
+ * 同一客户端的订阅、取消订阅与移除都在其反向索引条目的compute内完成,两个索引始终一致
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+public class SubscriptionRegistry {
+
+    /**
+     * topic:id,client
+     */
+    private final ClientGroup group = new ClientGroup();
+    /**
+     * id:topics
+     */
+    private final Map<ChannelId, Set<String>> subscriptions = new ConcurrentHashMap<>();
+    private final TopicTrie patterns = new TopicTrie();
+
+    /**
+     * 订阅主题,主题及其客户端集合的创建是原子的,且与同一客户端的移除互斥
+     *
+     * @param client 客户端
+     * @param topic  主题,可包含通配符
+     * @return 之前未订阅时返回true
+     */
+    public boolean subscribe(SocketClient client, String topic) {
+        ChannelId id = client.getChannel().id();
+        boolean[] added = new boolean[1];
+        subscriptions.compute(id, (key, topics) -> {
+            if (null == topics) {
+                topics = ConcurrentHashMap.newKeySet();
+            }
+            topics.add(topic);
+            group.compute(topic, (name, map) -> {
+                if (null == map) {
+                    map = new ClientMap();
+                    if (TopicTrie.isPattern(name)) {
+                        patterns.add(name);
+                    }
+                }
+                added[0] = null == map.put(id, client);
+                return map;
+            });
+            return topics;
+        });
+        return added[0];
+    }
+
+    /**
+     * 取消订阅,主题下没有客户端时一并移除
+     *
+     * @param client 客户端
+     * @param topic  主题
+     * @return 之前已订阅时返回true
+     */
+    public boolean unsubscribe(SocketClient client, String topic) {
+        ChannelId id = client.getChannel().id();
+        boolean[] removed = new boolean[1];
+        subscriptions.computeIfPresent(id, (key, topics) -> {
+            topics.remove(topic);
+            removed[0] = detach(id, topic);
+            return topics.isEmpty() ? null : topics;
+        });
+        return removed[0];
+    }
+
+    /**
+     * 移除客户端的全部订阅,开销与该客户端的订阅数成正比
+     *
+     * @param id 通道标识
+     */
+    public void remove(ChannelId id) {
+        subscriptions.computeIfPresent(id, (key, topics) -> {
+            for (String topic : topics) {
+                detach(id, topic);
+            }
+            return null;
+        });
+    }
+
+    public boolean isSubscribed(SocketClient client, String topic) {
+        Set<String> topics = subscriptions.get(client.getChannel().id());
+        return null != topics && topics.contains(topic);
+    }
+
+    public Set<String> topics(SocketClient client) {
+        Set<String> topics = subscriptions.get(client.getChannel().id());
+        return null == topics ? Collections.emptySet() : Collections.unmodifiableSet(topics);
+    }
+
+    /**
+     * 查找主题的全部订阅者,包括匹配的通配订阅,同一客户端只返回一次
+     *
+     * @param topic 发布的主题
+     * @return 订阅者
+     */
+    public Collection<SocketClient> match(String topic) {
+        ClientMap exact = group.get(topic);
+        List<String> matched = patterns.match(topic);
+        if (matched.isEmpty()) {
+            return null == exact ? Collections.emptyList() : exact.values();
+        }
+        Map<ChannelId, SocketClient> clients = new LinkedHashMap<>();
+        if (null != exact) {
+            clients.putAll(exact);
+        }
+        for (String pattern : matched) {
+            ClientMap map = group.get(pattern);
+            if (null != map) {
+                clients.putAll(map);
+            }
+        }
+        return clients.values();
+    }
+
+    public ClientGroup getClientGroup() {
+        return group;
+    }
+
+    private boolean detach(ChannelId id, String topic) {
+        boolean[] removed = new boolean[1];
+        group.computeIfPresent(topic, (key, map) -> {
+            removed[0] = null != map.remove(id);
+            if (map.isEmpty()) {
+                if (TopicTrie.isPattern(key)) {
+                    patterns.remove(key);
+                }
+                return null;
+            }
+            return map;
+        });
+        return removed[0];
+    }
+
+}
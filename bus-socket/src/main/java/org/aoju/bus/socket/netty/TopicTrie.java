@@ -0,0 +1,140 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License                                                               *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.socket.netty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 通配主题前缀树
+ * 主题按 {@link NettyConsts#TOPIC_SEPARATOR} 分层,
+ * {@link NettyConsts#TOPIC_WILDCARD_ONE} 匹配单个层级,
+ * {@link NettyConsts#TOPIC_WILDCARD_ALL} 匹配剩余的零个或多个层级
+ * 写操作串行,匹配无锁
+ *
+ * @author Kimi Liu
+ * @version 5.8.1
+ * @since JDK 1.8+
+ */
+class TopicTrie {
+
+    private final Node root = new Node();
+
+    static String[] split(String topic) {
+        return topic.split("\\" + NettyConsts.TOPIC_SEPARATOR, -1);
+    }
+
+    static boolean isPattern(String topic) {
+        for (String part : split(topic)) {
+            if (NettyConsts.TOPIC_WILDCARD_ONE.equals(part) || NettyConsts.TOPIC_WILDCARD_ALL.equals(part)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void add(String pattern) {
+        Node node = root;
+        for (String part : split(pattern)) {
+            node = node.children.computeIfAbsent(part, key -> new Node());
+        }
+        node.pattern = pattern;
+    }
+
+    synchronized void remove(String pattern) {
+        String[] parts = split(pattern);
+        Node[] path = new Node[parts.length + 1];
+        path[0] = root;
+        for (int i = 0; i < parts.length; i++) {
+            path[i + 1] = path[i].children.get(parts[i]);
+            if (null == path[i + 1]) {
+                return;
+            }
+        }
+        path[parts.length].pattern = null;
+        // 自底向上清理空节点
+        for (int i = parts.length; i > 0; i--) {
+            Node node = path[i];
+            if (null != node.pattern || !node.children.isEmpty()) {
+                break;
+            }
+            path[i - 1].children.remove(parts[i - 1]);
+        }
+    }
+
+    /**
+     * 查找与主题匹配的全部通配订阅
+     *
+     * @param topic 发布的主题
+     * @return 匹配的通配主题
+     */
+    List<String> match(String topic) {
+        if (root.children.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> patterns = new ArrayList<>();
+        collect(root, split(topic), 0, patterns);
+        return patterns;
+    }
+
+    boolean isEmpty() {
+        return root.children.isEmpty();
+    }
+
+    private void collect(Node node, String[] parts, int index, List<String> patterns) {
+        Node all = node.children.get(NettyConsts.TOPIC_WILDCARD_ALL);
+        if (null != all && null != all.pattern) {
+            patterns.add(all.pattern);
+        }
+        if (index == parts.length) {
+            if (null != node.pattern) {
+                patterns.add(node.pattern);
+            }
+            return;
+        }
+        Node one = node.children.get(NettyConsts.TOPIC_WILDCARD_ONE);
+        if (null != one) {
+            collect(one, parts, index + 1, patterns);
+        }
+        if (!NettyConsts.TOPIC_WILDCARD_ONE.equals(parts[index])
+                && !NettyConsts.TOPIC_WILDCARD_ALL.equals(parts[index])) {
+            Node exact = node.children.get(parts[index]);
+            if (null != exact) {
+                collect(exact, parts, index + 1, patterns);
+            }
+        }
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> children = new ConcurrentHashMap<>();
+        private volatile String pattern;
+
+    }
+
+}
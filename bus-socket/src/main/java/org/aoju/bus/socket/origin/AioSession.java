@@ -24,9 +24,14 @@
  ********************************************************************************/
 package org.aoju.bus.socket.origin;
 
+import org.aoju.bus.core.utils.IoUtils;
+
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  * @author Kimi Liu
@@ -150,5 +155,58 @@ public abstract class AioSession<T> {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * 发送文件区域
+     * <p>
+     * 文件按块映射到内存后直接写入通道,不经过堆内缓冲;同一时间只映射并输出一块,
+     * 对端接收缓慢时不会占用更多内存。调用前写入的数据先于文件输出,
+     * 传输期间写入的数据在文件之后输出;同一会话同一时间只允许一个文件传输
+     * </p>
+     *
+     * @param file     文件通道,传输结束后不会关闭
+     * @param position 文件起始位置
+     * @param count    传输字节数
+     * @param handler  传输回调
+     * @throws IOException 会话已关闭或存在未完成的文件传输
+     */
+    public void transferFile(FileChannel file, long position, long count, TransferHandler<T> handler) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 发送整个文件,传输结束后自动关闭文件
+     *
+     * @param file    文件
+     * @param handler 传输回调
+     * @throws IOException 文件无法读取、会话已关闭或存在未完成的文件传输
+     * @see #transferFile(FileChannel, long, long, TransferHandler)
+     */
+    public void transferFile(File file, TransferHandler<T> handler) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            transferFile(channel, 0, channel.size(), new TransferHandler<T>() {
+                @Override
+                public void progress(AioSession<T> session, long transferred, long total) {
+                    handler.progress(session, transferred, total);
+                }
+
+                @Override
+                public void completed(AioSession<T> session, long total) {
+                    IoUtils.close(channel);
+                    handler.completed(session, total);
+                }
+
+                @Override
+                public void failed(AioSession<T> session, Throwable throwable) {
+                    IoUtils.close(channel);
+                    handler.failed(session, throwable);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            IoUtils.close(channel);
+            throw e;
+        }
+    }
+
 
 }
@@ -24,32 +24,50 @@
  ********************************************************************************/
 package org.aoju.bus.socket.origin;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import org.aoju.bus.core.thread.HashedWheelTimer;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * 服务器定时任务
+ * 所有定时任务共用一个时间轮,会话级的超时(如心跳检测)可通过{@link #getTimer()}
+ * 创建{@link HashedWheelTimer.Timeout}并反复重新计时
  *
  * @author Kimi Liu
  * @version 5.8.1
  * @since JDK 1.8+
  */
-public abstract class QuickTimer extends TimerTask {
+public abstract class QuickTimer implements Runnable {
+
+    private static HashedWheelTimer timer = new HashedWheelTimer("Quick Timer", 10, TimeUnit.MILLISECONDS, 1024);
 
-    private static Timer timer = new Timer("Quick Timer", true);
+    private final HashedWheelTimer.Timeout timeout;
 
     public QuickTimer() {
-        timer.schedule(this, getDelay(), getPeriod());
+        timeout = timer.scheduleAtFixedRate(this, getDelay(), getPeriod(), TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * 停止共用的时间轮,心跳检测、延迟刷新等依赖它的任务随之停止,
+     * 之后的计时请求抛出{@link IllegalStateException},仅应在进程退出前调用
+     */
     public static void cancelQuickTask() {
-        timer.cancel();
+        timer.stop();
     }
 
-    public static Timer getTimer() {
+    public static HashedWheelTimer getTimer() {
         return timer;
     }
 
+    /**
+     * 取消当前定时任务
+     *
+     * @return 如果任务此前在等待执行
+     */
+    public boolean cancel() {
+        return timeout.cancel();
+    }
+
     /**
      * 获取定时任务的延迟启动时间
      *
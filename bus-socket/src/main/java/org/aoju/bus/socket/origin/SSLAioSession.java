@@ -35,6 +35,8 @@ import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLException;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Kimi Liu
@@ -74,6 +76,14 @@ class SSLAioSession<T> extends TcpAioSession<T> {
     }
 
 
+    /**
+     * 输出数据需逐块加密,不采用聚集写
+     */
+    @Override
+    protected boolean gatheringWrite() {
+        return false;
+    }
+
     @Override
     void initSession() {
         this.sslEngine = handshakeModel.getSslEngine();
@@ -128,10 +138,30 @@ class SSLAioSession<T> extends TcpAioSession<T> {
         writeToChannel0(netWriteBuffer);
     }
 
+    /**
+     * 文件块逐段加密后输出,加密数据输出完毕后再加密下一段
+     */
+    @Override
+    protected boolean writeChunk(ByteBuffer chunk, CompletionHandler<Integer, ByteBuffer> handler) {
+        checkInitialized();
+        if (!netWriteBuffer.hasRemaining()) {
+            if (!chunk.hasRemaining()) {
+                return false;
+            }
+            doWrap(chunk);
+        }
+        channel.write(netWriteBuffer, 0L, TimeUnit.MILLISECONDS, chunk, handler);
+        return true;
+    }
+
     private void doWrap(VirtualBuffer writeBuffer) {
+        doWrap(writeBuffer.buffer());
+    }
+
+    private void doWrap(ByteBuffer writeBuffer) {
         try {
             netWriteBuffer.compact();
-            SSLEngineResult result = sslEngine.wrap(writeBuffer.buffer(), netWriteBuffer);
+            SSLEngineResult result = sslEngine.wrap(writeBuffer, netWriteBuffer);
             while (result.getStatus() != SSLEngineResult.Status.OK) {
                 switch (result.getStatus()) {
                     case BUFFER_OVERFLOW:
@@ -143,7 +173,7 @@ class SSLAioSession<T> extends TcpAioSession<T> {
                     default:
                         Logger.error("doWrap Result:" + result.getStatus());
                 }
-                result = sslEngine.wrap(writeBuffer.buffer(), netWriteBuffer);
+                result = sslEngine.wrap(writeBuffer, netWriteBuffer);
             }
             netWriteBuffer.flip();
         } catch (SSLException e) {
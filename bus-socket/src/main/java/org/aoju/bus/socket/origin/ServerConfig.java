@@ -205,6 +205,11 @@ final class ServerConfig<T> {
     interface Property {
         String PROJECT_NAME = "bus-socket";
         String SESSION_WRITE_CHUNK_SIZE = PROJECT_NAME + ".session.writeChunkSize";
+        String SESSION_WRITE_GATHER_SIZE = PROJECT_NAME + ".session.writeGatherSize";
+        String SESSION_WRITE_GATHER_BYTES = PROJECT_NAME + ".session.writeGatherBytes";
+        String SESSION_WRITE_FLUSH_BYTES = PROJECT_NAME + ".session.writeFlushBytes";
+        String SESSION_WRITE_FLUSH_DELAY = PROJECT_NAME + ".session.writeFlushDelay";
+        String SESSION_TRANSFER_CHUNK_SIZE = PROJECT_NAME + ".session.transferChunkSize";
         String BUFFER_PAGE_NUM = PROJECT_NAME + ".bufferPool.pageNum";
         String SERVER_PAGE_SIZE = PROJECT_NAME + ".server.pageSize";
         String CLIENT_PAGE_SIZE = PROJECT_NAME + ".client.pageSize";
@@ -34,8 +34,11 @@ import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * AIO传输层会话
@@ -66,6 +69,19 @@ import java.util.concurrent.TimeUnit;
  */
 class TcpAioSession<T> extends AioSession<T> {
 
+    /**
+     * 单次聚集写的最大缓冲区数量,小于2时退化为逐块输出
+     */
+    private static final int GATHER_SIZE = ServerConfig.getIntProperty(ServerConfig.Property.SESSION_WRITE_GATHER_SIZE, 16);
+    /**
+     * 单次聚集写的字节上限
+     */
+    private static final int GATHER_BYTES = ServerConfig.getIntProperty(ServerConfig.Property.SESSION_WRITE_GATHER_BYTES, 256 * 1024);
+    /**
+     * 文件传输时单次映射的字节数
+     */
+    private static final int TRANSFER_CHUNK_SIZE = ServerConfig.getIntProperty(ServerConfig.Property.SESSION_TRANSFER_CHUNK_SIZE, 1024 * 1024);
+
     /**
      * 底层通信channel对象
      */
@@ -96,6 +112,16 @@ class TcpAioSession<T> extends AioSession<T> {
     private ServerConfig<T> ioServerConfig;
     private InputStream inputStream;
     private WriteBuffer byteBuf;
+    /**
+     * 聚集写中的缓冲区,前gatherCount个为当前正在输出的部分
+     */
+    private VirtualBuffer[] gatherBuffers;
+    private ByteBuffer[] gatherArray;
+    private int gatherCount;
+    /**
+     * 当前文件传输
+     */
+    private volatile FileTransfer transfer;
 
     TcpAioSession(AsynchronousSocketChannel channel, final ServerConfig<T> config, TcpReadHandler<T> readCompletionHandler, TcpWriteHandler<T> writeCompletionHandler, PageBuffer pageBuffer) {
         this.channel = channel;
@@ -104,13 +130,27 @@ class TcpAioSession<T> extends AioSession<T> {
         this.ioServerConfig = config;
 
         this.readBuffer = pageBuffer.allocate(config.getReadBufferSize());
+        if (gatheringWrite()) {
+            this.gatherBuffers = new VirtualBuffer[GATHER_SIZE];
+            this.gatherArray = new ByteBuffer[GATHER_SIZE];
+        }
         byteBuf = new WriteBuffer(pageBuffer, var -> {
             if (!semaphore.tryAcquire()) {
                 return null;
             }
+            if (gatherBuffers != null) {
+                if (gather()) {
+                    writeGather();
+                } else if (!continueTransfer()) {
+                    releaseSemaphore();
+                }
+                return null;
+            }
             TcpAioSession.this.writeBuffer = var.poll();
             if (writeBuffer == null) {
-                semaphore.release();
+                if (!continueTransfer()) {
+                    releaseSemaphore();
+                }
             } else {
                 continueWrite(writeBuffer);
             }
@@ -132,18 +172,26 @@ class TcpAioSession<T> extends AioSession<T> {
      * <p>需要调用控制同步</p>
      */
     void writeToChannel() {
-        if (writeBuffer == null) {
+        if (gatherBuffers != null) {
+            if (gather()) {
+                writeGather();
+                return;
+            }
+        } else if (writeBuffer == null) {
             writeBuffer = byteBuf.poll();
         } else if (!writeBuffer.buffer().hasRemaining()) {
             writeBuffer.clean();
             writeBuffer = byteBuf.poll();
         }
 
-        if (writeBuffer != null) {
+        if (gatherBuffers == null && writeBuffer != null) {
             continueWrite(writeBuffer);
             return;
         }
-        semaphore.release();
+        if (continueTransfer()) {
+            return;
+        }
+        releaseSemaphore();
         //此时可能是Closing或Closed状态
         if (status != SESSION_STATUS_ENABLED) {
             close();
@@ -154,6 +202,123 @@ class TcpAioSession<T> extends AioSession<T> {
     }
 
 
+    /**
+     * 是否采用聚集写,一次系统调用输出队列中的多个缓冲区
+     * 需要对输出数据逐块加工(如SSL加密)的会话应返回false
+     *
+     * @return true/false
+     */
+    protected boolean gatheringWrite() {
+        return GATHER_SIZE > 1;
+    }
+
+    /**
+     * 回收已输出完毕的缓冲区,并从输出队列补充待输出数据
+     *
+     * @return 是否存在待输出数据
+     */
+    private boolean gather() {
+        int size = 0;
+        for (int i = 0; i < gatherCount; i++) {
+            if (gatherArray[i].hasRemaining()) {
+                gatherBuffers[size] = gatherBuffers[i];
+                gatherArray[size++] = gatherArray[i];
+            } else {
+                gatherBuffers[i].clean();
+            }
+        }
+        for (int i = size; i < gatherCount; i++) {
+            gatherBuffers[i] = null;
+            gatherArray[i] = null;
+        }
+        int count = byteBuf.poll(gatherBuffers, size, GATHER_BYTES);
+        for (int i = size; i < count; i++) {
+            gatherArray[i] = gatherBuffers[i].buffer();
+        }
+        gatherCount = count;
+        return count > 0;
+    }
+
+    /**
+     * 内部方法：以一次聚集写输出全部待输出缓冲区
+     */
+    private void writeGather() {
+        channel.write(gatherArray, 0, gatherCount, 0L, TimeUnit.MILLISECONDS, this, writeCompletionHandler.gathering());
+    }
+
+    /**
+     * 文件传输前的数据已全部输出时,开始或继续文件传输
+     * <p>需持有输出信号量</p>
+     *
+     * @return 是否已触发文件传输的写操作
+     */
+    private boolean continueTransfer() {
+        FileTransfer fileTransfer = transfer;
+        if (fileTransfer == null || !byteBuf.isPaused()) {
+            return false;
+        }
+        fileTransfer.next();
+        return true;
+    }
+
+    /**
+     * 释放输出信号量,若期间加入的文件传输因信号量被占用而未能启动,则在此启动
+     */
+    private void releaseSemaphore() {
+        semaphore.release();
+        if (transfer != null && byteBuf != null && byteBuf.isPaused() && semaphore.tryAcquire()) {
+            if (!continueTransfer()) {
+                semaphore.release();
+            }
+        }
+    }
+
+    @Override
+    public void transferFile(FileChannel file, long position, long count, TransferHandler<T> handler) throws IOException {
+        if (position < 0 || count < 0 || position + count > file.size()) {
+            throw new IllegalArgumentException("position:" + position + " count:" + count + " size:" + file.size());
+        }
+        synchronized (this) {
+            assertChannel();
+            if (status != SESSION_STATUS_ENABLED) {
+                throw new IOException("session is closing");
+            }
+            if (transfer != null) {
+                throw new IOException("previous file transfer has not completed");
+            }
+            transfer = new FileTransfer(file, position, count, handler);
+        }
+        byteBuf.pause();
+        byteBuf.flush();
+    }
+
+    /**
+     * 输出文件块,返回false表示该块已输出完毕
+     *
+     * @param chunk   文件块
+     * @param handler 写回调
+     * @return 是否已触发写操作
+     */
+    protected boolean writeChunk(ByteBuffer chunk, CompletionHandler<Integer, ByteBuffer> handler) {
+        if (!chunk.hasRemaining()) {
+            return false;
+        }
+        channel.write(chunk, 0L, TimeUnit.MILLISECONDS, chunk, handler);
+        return true;
+    }
+
+    private boolean hasPendingWrite() {
+        if (transfer != null) {
+            return true;
+        }
+        for (int i = 0; i < gatherCount; i++) {
+            if (gatherArray[i].hasRemaining()) {
+                return true;
+            }
+        }
+        return writeBuffer != null && writeBuffer.buffer().hasRemaining();
+    }
+
     /**
      * 内部方法：触发通道的读操作
      *
@@ -209,6 +374,16 @@ class TcpAioSession<T> extends AioSession<T> {
                 writeBuffer.clean();
                 writeBuffer = null;
             }
+            for (int i = 0; i < gatherCount; i++) {
+                gatherBuffers[i].clean();
+                gatherBuffers[i] = null;
+                gatherArray[i] = null;
+            }
+            gatherCount = 0;
+            FileTransfer fileTransfer = transfer;
+            if (fileTransfer != null) {
+                fileTransfer.finish(new IOException("session closed"));
+            }
             try {
                 channel.shutdownInput();
             } catch (IOException e) {
@@ -225,7 +400,7 @@ class TcpAioSession<T> extends AioSession<T> {
                 Logger.debug("close session exception", e);
             }
             ioServerConfig.getProcessor().stateEvent(this, StateMachine.SESSION_CLOSED, null);
-        } else if ((writeBuffer == null || !writeBuffer.buffer().hasRemaining()) && !byteBuf.hasData()) {
+        } else if (!hasPendingWrite() && !byteBuf.hasData()) {
             close(true);
         } else {
             ioServerConfig.getProcessor().stateEvent(this, StateMachine.SESSION_CLOSING, null);
@@ -309,7 +484,7 @@ class TcpAioSession<T> extends AioSession<T> {
         }
 
         if (byteBuf != null && !byteBuf.isClosed()) {
-            byteBuf.flush();
+            byteBuf.flushCoalesced();
         }
         continueRead();
     }
@@ -383,6 +558,112 @@ class TcpAioSession<T> extends AioSession<T> {
     }
 
 
+    /**
+     * 文件传输,持有输出信号量直至传输结束
+     */
+    private class FileTransfer implements CompletionHandler<Integer, ByteBuffer> {
+
+        private final FileChannel file;
+        private final long start;
+        private final long end;
+        private final TransferHandler<T> handler;
+        /**
+         * 下一块的起始位置
+         */
+        private long position;
+        private long chunkStart;
+        private ByteBuffer chunk;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        FileTransfer(FileChannel file, long position, long count, TransferHandler<T> handler) {
+            this.file = file;
+            this.start = position;
+            this.end = position + count;
+            this.position = position;
+            this.handler = handler;
+        }
+
+        /**
+         * 输出当前块的剩余数据,当前块输出完毕后映射下一块
+         */
+        void next() {
+            try {
+                while (!finished.get()) {
+                    if (chunk != null && writeChunk(chunk, this)) {
+                        return;
+                    }
+                    if (position >= end) {
+                        finish(null);
+                        return;
+                    }
+                    long size = Math.min(TRANSFER_CHUNK_SIZE, end - position);
+                    chunkStart = position;
+                    chunk = file.map(FileChannel.MapMode.READ_ONLY, position, size);
+                    position += size;
+                }
+            } catch (Throwable e) {
+                failed(e, chunk);
+            }
+        }
+
+        @Override
+        public void completed(Integer result, ByteBuffer buffer) {
+            try {
+                NetMonitor<T> monitor = ioServerConfig.getMonitor();
+                if (monitor != null) {
+                    monitor.writeMonitor(TcpAioSession.this, result);
+                }
+                handler.progress(TcpAioSession.this, chunkStart - start + chunk.position(), end - start);
+            } catch (Exception e) {
+                Logger.debug(e.getMessage(), e);
+            }
+            next();
+        }
+
+        @Override
+        public void failed(Throwable exc, ByteBuffer buffer) {
+            if (!finish(exc)) {
+                return;
+            }
+            try {
+                ioServerConfig.getProcessor().stateEvent(TcpAioSession.this, StateMachine.OUTPUT_EXCEPTION, exc);
+            } catch (Exception e) {
+                Logger.debug(e.getMessage(), e);
+            }
+            close();
+        }
+
+        /**
+         * 结束传输,成功时恢复输出队列并继续输出传输期间写入的数据
+         *
+         * @param exc 失败原因,成功时为null
+         * @return 是否为首次结束
+         */
+        boolean finish(Throwable exc) {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            chunk = null;
+            transfer = null;
+            if (exc != null) {
+                try {
+                    handler.failed(TcpAioSession.this, exc);
+                } catch (Exception e) {
+                    Logger.debug(e.getMessage(), e);
+                }
+                return true;
+            }
+            try {
+                handler.completed(TcpAioSession.this, end - start);
+            } catch (Exception e) {
+                Logger.debug(e.getMessage(), e);
+            }
+            byteBuf.resume();
+            writeToChannel();
+            return true;
+        }
+    }
+
     private class InnerInputStream extends InputStream {
         private int remainLength;
 
@@ -37,6 +37,25 @@ import java.nio.channels.CompletionHandler;
  */
 class TcpWriteHandler<T> implements CompletionHandler<Integer, TcpAioSession<T>> {
 
+    /**
+     * 聚集写回调,单次输出量受聚集写字节上限约束,可安全转换为int
+     */
+    private final CompletionHandler<Long, TcpAioSession<T>> gatheringHandler = new CompletionHandler<Long, TcpAioSession<T>>() {
+        @Override
+        public void completed(Long result, TcpAioSession<T> aioSession) {
+            TcpWriteHandler.this.completed(result.intValue(), aioSession);
+        }
+
+        @Override
+        public void failed(Throwable exc, TcpAioSession<T> aioSession) {
+            TcpWriteHandler.this.failed(exc, aioSession);
+        }
+    };
+
+    CompletionHandler<Long, TcpAioSession<T>> gathering() {
+        return gatheringHandler;
+    }
+
     @Override
     public void completed(final Integer result, final TcpAioSession<T> aioSession) {
         try {
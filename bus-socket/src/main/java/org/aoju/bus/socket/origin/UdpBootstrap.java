@@ -190,7 +190,7 @@ public class UdpBootstrap<Request> implements Runnable {
 
             readRingBuffers = new RingBuffer[config.getThreadNum()];
             for (int i = 0; i < config.getThreadNum(); i++) {
-                final RingBuffer<UdpReadEvent<Request>> ringBuffer = readRingBuffers[i] = new RingBuffer<>(1024, factory);
+                final RingBuffer<UdpReadEvent<Request>> ringBuffer = readRingBuffers[i] = new RingBuffer<>(1024, factory, RingBuffer.ProducerType.SINGLE, RingBuffer.WaitStrategy.BLOCKING);
                 new Thread(() -> {
                     while (STATUS_RUNNING == status) {
                         try {
@@ -242,7 +242,9 @@ public class UdpBootstrap<Request> implements Runnable {
             RingBuffer<UdpReadEvent<Request>> ringBuffer = readRingBuffers[i];
             try {
                 int index = ringBuffer.tryNextWriteIndex();
-                ringBuffer.publishWriteIndex(index);
+                if (index >= 0) {
+                    ringBuffer.publishWriteIndex(index);
+                }
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
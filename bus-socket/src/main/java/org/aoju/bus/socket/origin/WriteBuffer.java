@@ -30,6 +30,8 @@ import org.aoju.bus.core.io.VirtualBuffer;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -46,6 +48,15 @@ public class WriteBuffer extends OutputStream {
      * 输出缓存块大小
      */
     private static final int WRITE_CHUNK_SIZE = ServerConfig.getIntProperty(ServerConfig.Property.SESSION_WRITE_CHUNK_SIZE, 4096);
+    /**
+     * 延迟刷新的等待时间,毫秒,0表示不延迟
+     */
+    private static final int FLUSH_DELAY = ServerConfig.getIntProperty(ServerConfig.Property.SESSION_WRITE_FLUSH_DELAY, 0);
+    /**
+     * 延迟刷新的字节阈值,待输出数据不足该值时等待更多数据合并输出;
+     * 只配置了{@link #FLUSH_DELAY}时默认为输出缓存块大小
+     */
+    private static final int FLUSH_BYTES = flushBytes();
     /**
      * 存储已就绪待输出的数据
      */
@@ -83,8 +94,21 @@ public class WriteBuffer extends OutputStream {
      * 当前WriteBuffer是否已关闭
      */
     private boolean closed = false;
+    /**
+     * 是否已安排延迟刷新
+     */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    /**
+     * 文件传输前尚需输出的缓冲区数量,-1表示未暂停,0表示已输出至文件传输位置
+     */
+    private volatile int barrier = -1;
     private byte[] cacheByte = new byte[8];
 
+    private static int flushBytes() {
+        int flushBytes = ServerConfig.getIntProperty(ServerConfig.Property.SESSION_WRITE_FLUSH_BYTES, 0);
+        return flushBytes > 0 ? flushBytes : WRITE_CHUNK_SIZE;
+    }
+
     protected WriteBuffer(PageBuffer pageBuffer, Function<WriteBuffer, Void> flushFunction, int writeQueueSize) {
         this.pageBuffer = pageBuffer;
         this.function = flushFunction;
@@ -232,7 +256,7 @@ public class WriteBuffer extends OutputStream {
             throw new RuntimeException("OutputStream has closed");
         }
         int size = this.count;
-        if (size > 0) {
+        if (size > 0 || barrier == 0) {
             function.apply(this);
         } else if (writeInBuf != null && writeInBuf.buffer().position() > 0 && lock.tryLock()) {
             try {
@@ -253,6 +277,28 @@ public class WriteBuffer extends OutputStream {
 
     }
 
+    /**
+     * 按字节/时间阈值合并刷新,供框架在消息处理完毕后调用
+     * 待输出数据不足{@link #FLUSH_BYTES}时延迟{@link #FLUSH_DELAY}毫秒再刷新,
+     * 延迟由{@link QuickTimer}执行,实际等待会向上取整到其10毫秒的时间轮刻度;
+     * 期间写入的数据将合并在同一次写操作中输出;未配置延迟时等同于{@link #flush()}
+     */
+    void flushCoalesced() {
+        if (FLUSH_DELAY <= 0 || count > 0
+                || (writeInBuf != null && writeInBuf.buffer().position() >= FLUSH_BYTES)) {
+            flush();
+            return;
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            QuickTimer.getTimer().schedule(() -> {
+                flushScheduled.set(false);
+                if (!closed) {
+                    flush();
+                }
+            }, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
     @Override
     public void close() throws IOException {
         lock.lock();
@@ -263,6 +309,7 @@ public class WriteBuffer extends OutputStream {
             flush();
 
             closed = true;
+            barrier = -1;
 
             VirtualBuffer byteBuf;
             while ((byteBuf = poll()) != null) {
@@ -280,6 +327,47 @@ public class WriteBuffer extends OutputStream {
         return closed;
     }
 
+    /**
+     * 在当前位置插入文件传输,此前写入的数据输出完毕后队列暂停出队,
+     * 此后写入的数据在{@link #resume()}之前保留在队列中
+     */
+    void pause() {
+        lock.lock();
+        try {
+            if (writeInBuf != null && writeInBuf.buffer().position() > 0) {
+                VirtualBuffer buffer = writeInBuf;
+                writeInBuf = null;
+                buffer.buffer().flip();
+                this.put(buffer);
+            }
+            barrier = count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 文件传输结束,恢复出队
+     */
+    void resume() {
+        lock.lock();
+        try {
+            barrier = -1;
+        } finally {
+            lock.unlock();
+        }
+        if (!closed) {
+            flush();
+        }
+    }
+
+    /**
+     * @return 文件传输前的数据是否已全部出队
+     */
+    boolean isPaused() {
+        return barrier == 0;
+    }
+
     boolean hasData() {
         return count > 0 || (writeInBuf != null && writeInBuf.buffer().position() > 0);
     }
@@ -307,6 +395,50 @@ public class WriteBuffer extends OutputStream {
         }
     }
 
+    /**
+     * 批量获取并移除缓冲队列中的VirtualBuffer,用于聚集写
+     * 首个缓冲区总会被取出,其余缓冲区在累计字节数不超过maxBytes时取出
+     *
+     * @param dest     存放取出的缓冲区
+     * @param offset   dest中已有的缓冲区数量
+     * @param maxBytes 本次聚集写的字节上限,包含dest中已有的数据
+     * @return dest中的缓冲区数量
+     */
+    int poll(VirtualBuffer[] dest, int offset, long maxBytes) {
+        lock.lock();
+        try {
+            long bytes = 0;
+            for (int i = 0; i < offset; i++) {
+                bytes += dest[i].buffer().remaining();
+            }
+            int taken = 0;
+            while (count > 0 && offset < dest.length && barrier != 0) {
+                VirtualBuffer x = items[takeIndex];
+                int remaining = x.buffer().remaining();
+                if (offset > 0 && bytes + remaining > maxBytes) {
+                    break;
+                }
+                items[takeIndex] = null;
+                if (++takeIndex == items.length) {
+                    takeIndex = 0;
+                }
+                count--;
+                if (barrier > 0) {
+                    barrier--;
+                }
+                dest[offset++] = x;
+                bytes += remaining;
+                taken++;
+            }
+            if (taken > 0) {
+                notFull.signalAll();
+            }
+            return offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * 获取并移除当前缓冲队列中头部的VirtualBuffer
      *
@@ -315,7 +447,7 @@ public class WriteBuffer extends OutputStream {
     VirtualBuffer poll() {
         lock.lock();
         try {
-            if (count == 0) {
+            if (count == 0 || barrier == 0) {
                 return null;
             }
             VirtualBuffer x = items[takeIndex];
@@ -324,6 +456,9 @@ public class WriteBuffer extends OutputStream {
                 takeIndex = 0;
             }
             count--;
+            if (barrier > 0) {
+                barrier--;
+            }
             notFull.signal();
             return x;
         } finally {
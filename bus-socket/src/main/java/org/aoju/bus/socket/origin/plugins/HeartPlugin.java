@@ -24,18 +24,20 @@
  ********************************************************************************/
 package org.aoju.bus.socket.origin.plugins;
 
+import org.aoju.bus.core.thread.HashedWheelTimer;
 import org.aoju.bus.logger.Logger;
 import org.aoju.bus.socket.origin.AioSession;
+import org.aoju.bus.socket.origin.QuickTimer;
 import org.aoju.bus.socket.origin.StateMachine;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 心跳插件
+ * 每个会话持有一个时间轮任务,到期检查后原地重新计时;收到消息只更新时间戳,不触碰定时器
  *
  * @author Kimi Liu
  * @version 5.8.1
@@ -43,8 +45,7 @@ import java.util.TimerTask;
  */
 public abstract class HeartPlugin<T> extends AbstractPlugin<T> {
 
-    private static Timer timer = new Timer("HeartMonitor Timer", true);
-    private Map<AioSession<T>, Long> sessionMap = new HashMap<>();
+    private final Map<AioSession<T>, Heart> sessionMap = new ConcurrentHashMap<>();
     private int timeout;
 
     public HeartPlugin(int timeout) {
@@ -53,7 +54,10 @@ public abstract class HeartPlugin<T> extends AbstractPlugin<T> {
 
     @Override
     public final boolean preProcess(AioSession<T> session, T t) {
-        sessionMap.put(session, System.currentTimeMillis());
+        Heart heart = sessionMap.get(session);
+        if (heart != null) {
+            heart.lastTime = System.currentTimeMillis();
+        }
         //是否心跳响应消息
         if (isHeartMessage(session, t)) {
             //延长心跳监测时间
@@ -66,13 +70,15 @@ public abstract class HeartPlugin<T> extends AbstractPlugin<T> {
     public final void stateEvent(StateMachine stateMachineEnum, AioSession<T> session, Throwable throwable) {
         switch (stateMachineEnum) {
             case NEW_SESSION:
-                sessionMap.put(session, System.currentTimeMillis());
-                registerHeart(session, timeout);
                 //注册心跳监测
+                registerHeart(session, timeout);
                 break;
             case SESSION_CLOSED:
                 //移除心跳监测
-                sessionMap.remove(session);
+                Heart heart = sessionMap.remove(session);
+                if (heart != null) {
+                    heart.timeout.cancel();
+                }
                 break;
         }
     }
@@ -101,30 +107,41 @@ public abstract class HeartPlugin<T> extends AbstractPlugin<T> {
             return;
         }
         Logger.info("session:{}注册心跳任务,超时时间:{}", session, timeout);
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                if (session.isInvalid()) {
-                    sessionMap.remove(session);
-                    Logger.info("session:{} 已失效,移除心跳任务", session);
-                    return;
-                }
-                Long lastTime = sessionMap.get(session);
-                if (lastTime == null) {
-                    Logger.warn("session:{} timeout is null", session);
-                    lastTime = System.currentTimeMillis();
-                    sessionMap.put(session, lastTime);
-                }
-                if (System.currentTimeMillis() - lastTime > timeout) {
-                    try {
-                        sendHeartRequest(session);
-                    } catch (IOException e) {
-                        Logger.error("heart exception", e);
-                    }
+        Heart heart = new Heart(session);
+        sessionMap.put(session, heart);
+        heart.timeout.reschedule(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 会话的心跳状态
+     */
+    private final class Heart implements Runnable {
+
+        private final AioSession<T> session;
+        private final HashedWheelTimer.Timeout timeout;
+        private volatile long lastTime = System.currentTimeMillis();
+
+        Heart(AioSession<T> session) {
+            this.session = session;
+            this.timeout = QuickTimer.getTimer().newTimeout(this);
+        }
+
+        @Override
+        public void run() {
+            if (session.isInvalid()) {
+                sessionMap.remove(session);
+                Logger.info("session:{} 已失效,移除心跳任务", session);
+                return;
+            }
+            if (System.currentTimeMillis() - lastTime > HeartPlugin.this.timeout) {
+                try {
+                    sendHeartRequest(session);
+                } catch (IOException e) {
+                    Logger.error("heart exception", e);
                 }
-                registerHeart(session, timeout);
             }
-        }, timeout);
+            timeout.reschedule(HeartPlugin.this.timeout, TimeUnit.MILLISECONDS);
+        }
     }
 
 }
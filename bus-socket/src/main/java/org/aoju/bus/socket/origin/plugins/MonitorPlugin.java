@@ -30,7 +30,6 @@ import org.aoju.bus.socket.origin.QuickTimer;
 import org.aoju.bus.socket.origin.StateMachine;
 
 import java.nio.channels.AsynchronousSocketChannel;
-import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -42,7 +41,7 @@ import java.util.concurrent.atomic.AtomicLong;
  * @version 5.8.1
  * @since JDK 1.8+
  */
-public final class MonitorPlugin<T> extends TimerTask implements Plugin<T> {
+public final class MonitorPlugin<T> implements Plugin<T>, Runnable {
 
     /**
      * 任务执行频率
@@ -58,6 +57,11 @@ public final class MonitorPlugin<T> extends TimerTask implements Plugin<T> {
      */
     private AtomicLong outFlow = new AtomicLong(0);
 
+    /**
+     * 当前周期内写操作(系统调用)次数
+     */
+    private AtomicLong writeCount = new AtomicLong(0);
+
     /**
      * 当前周期内处理失败消息数
      */
@@ -95,7 +99,7 @@ public final class MonitorPlugin<T> extends TimerTask implements Plugin<T> {
     public MonitorPlugin(int seconds) {
         this.seconds = seconds;
         long mills = TimeUnit.SECONDS.toMillis(seconds);
-        QuickTimer.getTimer().schedule(this, mills, mills);
+        QuickTimer.getTimer().scheduleAtFixedRate(this, mills, mills, TimeUnit.MILLISECONDS);
     }
 
 
@@ -125,12 +129,15 @@ public final class MonitorPlugin<T> extends TimerTask implements Plugin<T> {
     public void run() {
         long curInFlow = inFlow.getAndSet(0);
         long curOutFlow = outFlow.getAndSet(0);
+        long curWriteCount = writeCount.getAndSet(0);
         long curDiscardNum = processFailNum.getAndSet(0);
         long curProcessMsgNum = processMsgNum.getAndSet(0);
         int connectCount = newConnect.getAndSet(0);
         int disConnectCount = disConnect.getAndSet(0);
         Logger.info("\r\n-----这" + seconds + "秒发生了什么----\r\n流入流量:\t\t" + curInFlow * 1.0 / (1024 * 1024) + "(MB)"
                 + "\r\n流出流量:\t" + curOutFlow * 1.0 / (1024 * 1024) + "(MB)"
+                + "\r\n写操作次数:\t" + curWriteCount
+                + "\r\n每消息写操作数:\t" + (curProcessMsgNum == 0 ? 0 : curWriteCount * 1.0 / curProcessMsgNum)
                 + "\r\n处理失败消息数:\t" + curDiscardNum
                 + "\r\n已处理消息量:\t" + curProcessMsgNum
                 + "\r\n已处理消息总量:\t" + totleProcessMsgNum.get()
@@ -159,5 +166,6 @@ public final class MonitorPlugin<T> extends TimerTask implements Plugin<T> {
     @Override
     public void writeMonitor(AioSession<T> session, int writeSize) {
         outFlow.addAndGet(writeSize);
+        writeCount.incrementAndGet();
     }
 }
@@ -33,7 +33,6 @@ import org.aoju.bus.socket.origin.AioQuickServer;
 import org.aoju.bus.socket.origin.QuickTimer;
 
 import java.lang.reflect.Field;
-import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -60,7 +59,7 @@ public class PageBufferPlugin<T> extends AbstractPlugin {
 
     private void init() {
         long mills = TimeUnit.SECONDS.toMillis(seconds);
-        QuickTimer.getTimer().schedule(new TimerTask() {
+        QuickTimer.getTimer().scheduleAtFixedRate(new Runnable() {
             @Override
             public void run() {
                 {
@@ -89,7 +88,7 @@ public class PageBufferPlugin<T> extends AbstractPlugin {
                     }
                 }
             }
-        }, mills, mills);
+        }, mills, mills, TimeUnit.MILLISECONDS);
     }
 
 }